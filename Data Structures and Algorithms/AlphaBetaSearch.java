@@ -0,0 +1,467 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Alpha-beta search of the game tree for the computer's best move, with a
+ * transposition table, move ordering and an iterative deepening driver.
+ *
+ * A search works on its own Configurations, which it modifies while searching
+ * and restores before returning. The computer plays 'O' and maximizes the
+ * scores of the Evaluator; the human plays 'X' and minimizes them.
+ */
+public class AlphaBetaSearch {
+    protected static final char COMPUTER = 'O';
+    protected static final char HUMAN = 'X';
+
+    protected Configurations configs;
+    protected TranspositionTable table;
+    protected MoveOrdering moveOrdering;
+    protected Evaluator evaluator;
+    protected int boardSize;
+
+    protected final int minBound;  // Below every score, the initial alpha
+    protected final int maxBound;  // Above every score, the initial beta
+
+    protected int maxLevel;        // Maximum level of the game tree explored by the current search
+    protected long nodes;          // Nodes visited since the last reset
+
+    protected boolean timed;       // True if the search stops at the deadline
+    protected long deadline;       // System.nanoTime() at which a timed search stops
+    protected long nodeLimit;      // Nodes after which a limited search stops, 0 for none
+    protected boolean nodesLimited; // True if the search stops at nodeLimit
+    protected AtomicBoolean stopFlag; // Set by stop(), possibly from another thread
+    protected BooleanSupplier stopRequest; // Stop request of the caller of the search, checked with stopFlag, or null
+    protected boolean aborted;     // True once the current search was interrupted
+
+    protected Consumer<PosPlay> iterationListener; // Told the best play of each completed iteration, or null
+    protected int startLevel;      // maxLevel of the first search of iterativeDeepening
+    private int completedLevel;    // maxLevel of the deepest search completed by iterativeDeepening
+    private PosPlay resumePlay;    // Play of an earlier completed iteration the next deepening continues, or null
+    private int resumeLevel;       // maxLevel of that iteration
+
+    /**
+     * Creates a search over the given board, which only tells finished games
+     * apart (see OutcomeEvaluator).
+     *
+     * @param configs the board to search from; it is modified during the search.
+     * @param table the transposition table to use.
+     * @param moveOrdering the move ordering to use.
+     */
+    public AlphaBetaSearch(Configurations configs, TranspositionTable table, MoveOrdering moveOrdering) {
+        this(configs, table, moveOrdering, new OutcomeEvaluator());
+    }
+
+    /**
+     * Creates a search over the given board.
+     *
+     * @param configs the board to search from; it is modified during the search.
+     * @param table the transposition table to use.
+     * @param moveOrdering the move ordering to use.
+     * @param evaluator the evaluator of the leaves of the search.
+     */
+    public AlphaBetaSearch(Configurations configs, TranspositionTable table, MoveOrdering moveOrdering,
+                           Evaluator evaluator) {
+        this.configs = configs;
+        this.table = table;
+        this.moveOrdering = moveOrdering;
+        this.evaluator = evaluator;
+        this.boardSize = configs.getBoardSize();
+        this.minBound = evaluator.minScore() - 1;
+        this.maxBound = evaluator.maxScore() + 1;
+        this.stopFlag = new AtomicBoolean(false);
+        evaluator.prepare(configs);
+    }
+
+    /**
+     * Searches the computer's move by iterative deepening: with maxLevel = 0, 1, 2, ...
+     * up to maxDepth, or until the time budget or the node limit runs out. The move of the deepest
+     * search that completed is returned. The transposition table keeps the results
+     * of each search, so the next one starts with the best moves found so far.
+     * Each search first tries a narrow window around the previous score and only
+     * searches the full window again if the score falls outside of it.
+     *
+     * @param maxDepth the deepest maxLevel to search to.
+     * @param timeMillis the time budget in milliseconds, or 0 for none.
+     * @return the best play found, or null if the first search was stopped.
+     */
+    public PosPlay iterativeDeepening(int maxDepth, long timeMillis) {
+        stopFlag.set(false);
+        table.newSearch();   // Entries of earlier moves are kept, but replaced first
+        return deepen(maxDepth, timeMillis);
+    }
+
+    /**
+     * The iterative deepening loop of iterativeDeepening, without starting a new
+     * generation of the transposition table or clearing the stop flag. Searches
+     * sharing a table with the one that started the generation call this directly.
+     *
+     * @param maxDepth the deepest maxLevel to search to.
+     * @param timeMillis the time budget in milliseconds, or 0 for none.
+     * @return the best play found, or null if the first search was stopped.
+     */
+    protected PosPlay deepen(int maxDepth, long timeMillis) {
+        PosPlay best = resumePlay;
+        PosPlay pos;
+        int firstLevel = (best == null) ? startLevel : Math.max(startLevel, resumeLevel + 1);
+        resumePlay = null;
+
+        moveOrdering.newSearch();
+        deadline = System.nanoTime() + timeMillis * 1000000L;
+        timed = best != null && timeMillis > 0;   // The first search always completes, unless there is a play already
+        nodesLimited = best != null && nodeLimit > 0;
+        aborted = false;
+        nodes = 0;
+        completedLevel = (best == null) ? -1 : resumeLevel;
+
+        for (maxLevel = firstLevel; maxLevel <= maxDepth; maxLevel++) {
+            if (best == null) {
+                pos = searchRoot(minBound, maxBound);
+            } else {
+                int low = best.getScore() - evaluator.aspirationWindow();
+                int high = best.getScore() + evaluator.aspirationWindow();
+                pos = searchRoot(low, high);
+                if (!aborted && (pos.getScore() <= low || pos.getScore() >= high)) {
+                    pos = searchRoot(minBound, maxBound);
+                }
+            }
+            if (aborted) break;   // Keep the move of the last complete search
+            best = pos;
+            completedLevel = maxLevel;
+            if (iterationListener != null) iterationListener.accept(best);
+            timed = timeMillis > 0;
+            nodesLimited = nodeLimit > 0;
+
+            // Stop once the whole game tree was searched or the outcome is certain
+            if (maxLevel >= configs.emptySquareCount() - 1 || best.getScore() == evaluator.maxScore()
+                || best.getScore() == evaluator.minScore()) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Makes the next call to iterativeDeepening continue an earlier search of
+     * the same board, such as a ponder search stopped when the human played,
+     * instead of starting over: it searches from the level after the given
+     * one, and returns the given play if its first search is stopped.
+     *
+     * @param play the best play of the deepest iteration the earlier search completed.
+     * @param level the maxLevel of that iteration.
+     */
+    public void resumeFrom(PosPlay play, int level) {
+        this.resumePlay = play;
+        this.resumeLevel = level;
+    }
+
+    /**
+     * Searches the computer's move to a fixed depth, without a time limit.
+     *
+     * @param maxLevel the maximum level of the game tree to explore.
+     * @return the best play found.
+     */
+    public PosPlay search(int maxLevel) {
+        this.maxLevel = maxLevel;
+        timed = false;
+        nodesLimited = false;
+        aborted = false;
+        stopFlag.set(false);
+        nodes = 0;
+        return searchRoot(minBound, maxBound);
+    }
+
+    /**
+     * Searches the root of the game tree, where the computer is to play.
+     *
+     * @param alpha the score the computer is already guaranteed.
+     * @param beta the score the human is already guaranteed.
+     * @return the best play and its score.
+     */
+    protected PosPlay searchRoot(int alpha, int beta) {
+        return alphaBeta(COMPUTER, alpha, beta, 0);
+    }
+
+    /**
+     * Explores the game tree below the current board and chooses the best move
+     * for the player to move. This is searchNode with its result unpacked.
+     *
+     * @param symbol the symbol of the player to move.
+     * @param alpha the score the computer is already guaranteed.
+     * @param beta the score the human is already guaranteed.
+     * @param level the level of the current board in the game tree, 0 at the root.
+     * @return the best play and its score; the score is only a bound if it falls
+     *         outside (alpha, beta), and meaningless if the search was aborted.
+     */
+    public PosPlay alphaBeta(char symbol, int alpha, int beta, int level) {
+        long play = searchNode(symbol, alpha, beta, level);
+        return toPlay(playScore(play), playMove(play));
+    }
+
+    /**
+     * Explores the game tree below the current board and chooses the best move
+     * for the player to move.
+     *
+     * @param symbol the symbol of the player to move.
+     * @param alpha the score the computer is already guaranteed.
+     * @param beta the score the human is already guaranteed.
+     * @param level the level of the current board in the game tree, 0 at the root.
+     * @return the best move and its score, packed by packPlay; the score is only a
+     *         bound if it falls outside (alpha, beta), and meaningless if the
+     *         search was aborted. The move is -1 if the score came from the table.
+     */
+    protected long searchNode(char symbol, int alpha, int beta, int level) {
+        char opponent = (symbol == COMPUTER) ? HUMAN : COMPUTER;
+        int value = (symbol == COMPUTER) ? minBound : maxBound;
+        int bestMove = -1;
+        int ttMove = -1;         // Best move remembered for this configuration
+        int depth = maxLevel - level;   // Remaining depth below this node
+        int originalAlpha = alpha;
+        int originalBeta = beta;
+
+        if (checkAbort()) {
+            return packPlay(value, -1);   // Discarded by the callers
+        }
+
+        long entry = configs.probeConfiguration(table);
+        if (entry != TranspositionTable.MISS) {
+            ttMove = TranspositionTable.move(entry);
+            // The cached score can only be used if it was searched at least as deep.
+            // At the root a move is needed, so the configuration is always searched
+            if (level > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return packPlay(score, -1);
+                }
+                if (bound == TranspositionTable.LOWER_BOUND && score > alpha) {
+                    alpha = score;
+                } else if (bound == TranspositionTable.UPPER_BOUND && score < beta) {
+                    beta = score;
+                }
+                if (alpha >= beta) {
+                    return packPlay(score, -1);
+                }
+            }
+        }
+
+        // Candidate moves, best first
+        int moveCount = moveOrdering.orderMoves(configs, level, ttMove, symbol);
+        int[] moves = moveOrdering.moveList(level);
+        for (int k = 0; k < moveCount; k++) {
+            int square = moves[k];
+            int row = square / boardSize;
+            int col = square % boardSize;
+            // At the root, moves equivalent by symmetry to another move are skipped
+            if (level == 0 && configs.isSymmetricDuplicate(row, col)) continue;
+
+            int score = searchMove(symbol, square, alpha, beta, level);
+            if (aborted) {
+                return packPlay(value, -1);   // Unfinished result, nothing is cached
+            }
+
+            if ((symbol == COMPUTER && score > value) || (symbol == HUMAN && score < value)) {
+                bestMove = square;
+                value = score;
+
+                // Alpha/beta cut
+                if (symbol == COMPUTER && value > alpha) {
+                    alpha = value;
+                } else if (symbol == HUMAN && value < beta) {
+                    beta = value;
+                }
+                if (alpha >= beta) {
+                    moveOrdering.recordCutoff(level, square, symbol, depth);
+                    break;
+                }
+            }
+        }
+
+        storeResult(value, originalAlpha, originalBeta, depth, bestMove);
+        return packPlay(value, bestMove);
+    }
+
+    /**
+     * Plays a move, scores the resulting board and takes the move back. The board
+     * is evaluated directly if the game is over or the maximum level is reached,
+     * and searched with alphaBeta otherwise.
+     *
+     * @param symbol the symbol of the player making the move.
+     * @param square the index of the square to play on.
+     * @param alpha the score the computer is already guaranteed.
+     * @param beta the score the human is already guaranteed.
+     * @param level the level of the board the move is made from.
+     * @return the score of the move.
+     */
+    protected int searchMove(char symbol, int square, int alpha, int beta, int level) {
+        int row = square / boardSize;
+        int col = square % boardSize;
+        int score;
+        configs.savePlay(row, col, symbol);
+        if (configs.isTerminal() || level >= maxLevel) {
+            // Game ending situation or max number of levels reached
+            score = evaluator.evaluate(configs);
+        } else {
+            score = playScore(searchNode(symbol == COMPUTER ? HUMAN : COMPUTER, alpha, beta, level + 1));
+        }
+        configs.savePlay(row, col, ' ');
+        return score;
+    }
+
+    /**
+     * Stores the result of a search in the transposition table. A score outside
+     * the window the configuration was searched with only bounds its true value.
+     *
+     * @param value the score found.
+     * @param alpha the alpha the configuration was searched with.
+     * @param beta the beta the configuration was searched with.
+     * @param depth the remaining depth below the configuration.
+     * @param move the best move found, or -1.
+     */
+    protected void storeResult(int value, int alpha, int beta, int depth, int move) {
+        int bound;
+        if (value <= alpha) bound = TranspositionTable.UPPER_BOUND;
+        else if (value >= beta) bound = TranspositionTable.LOWER_BOUND;
+        else bound = TranspositionTable.EXACT;
+        configs.storeConfiguration(table, value, bound, depth, move);
+    }
+
+    /**
+     * Counts a node and checks, every 1024 nodes, whether the search has to stop.
+     *
+     * @return true if the search was aborted.
+     */
+    protected boolean checkAbort() {
+        nodes++;
+        if ((nodes & 1023) == 0 && !aborted) {
+            if (stopFlag.get() || (stopRequest != null && stopRequest.getAsBoolean())
+                || (timed && System.nanoTime() - deadline > 0)
+                || (nodesLimited && nodes >= nodeLimit)) {
+                aborted = true;
+            }
+        }
+        return aborted;
+    }
+
+    /**
+     * Converts a move index and its score to a PosPlay.
+     *
+     * @param value the score of the move.
+     * @param move the index of the square, or -1.
+     * @return the corresponding play.
+     */
+    protected PosPlay toPlay(int value, int move) {
+        if (move < 0) return new PosPlay(value, -1, -1);
+        return new PosPlay(value, move / boardSize, move % boardSize);
+    }
+
+    /**
+     * Packs a score and a move into a long, so that the nodes of the search can
+     * return both without allocating: the score in the high half, the move in
+     * the low half.
+     *
+     * @param score the score.
+     * @param move the index of the square, or -1.
+     * @return the packed play.
+     */
+    protected static long packPlay(int score, int move) {
+        return ((long) score << 32) | (move & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the score of a play packed by packPlay.
+     *
+     * @param play the packed play.
+     * @return the score.
+     */
+    protected static int playScore(long play) {
+        return (int) (play >> 32);
+    }
+
+    /**
+     * Returns the move of a play packed by packPlay.
+     *
+     * @param play the packed play.
+     * @return the index of the square, or -1.
+     */
+    protected static int playMove(long play) {
+        return (int) play;
+    }
+
+    /**
+     * Asks the search to stop as soon as possible. This may be called from any
+     * thread; iterativeDeepening then returns the move of the last completed search.
+     */
+    public void stop() {
+        stopFlag.set(true);
+    }
+
+    /**
+     * Sets a stop request the search checks as often as the flag of stop().
+     * Unlike that flag, which iterativeDeepening clears when it starts, the
+     * request belongs to the caller: a request made before the search starts
+     * is not lost, and a search started by another caller is not stopped.
+     *
+     * @param stopRequest returns true once the search has to stop, or null for none.
+     */
+    public void setStopRequest(BooleanSupplier stopRequest) {
+        this.stopRequest = stopRequest;
+    }
+
+    /**
+     * Sets the listener told the best play after each iteration of
+     * iterativeDeepening completes. The listener runs on the searching thread,
+     * between two iterations, and may call stop().
+     *
+     * @param listener the listener, or null for none.
+     */
+    public void setIterationListener(Consumer<PosPlay> listener) {
+        this.iterationListener = listener;
+    }
+
+    /**
+     * Releases the threads used by the search, if any. The search cannot be
+     * used anymore afterwards.
+     */
+    public void shutdown() {
+    }
+
+    /**
+     * Limits the number of nodes iterativeDeepening visits: once the first
+     * search completed, the deepening stops after about that many nodes. Only
+     * the nodes visited by the calling thread count towards the limit.
+     *
+     * @param nodeLimit the number of nodes, or 0 for no limit.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Returns the number of nodes visited by the last search.
+     *
+     * @return the number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the maximum level of the deepest search completed by the last
+     * call to iterativeDeepening.
+     *
+     * @return the completed level, or -1 if no search completed.
+     */
+    public int getCompletedLevel() {
+        return completedLevel;
+    }
+
+    /**
+     * Checks if the last search was interrupted before it completed.
+     *
+     * @return true if the search was aborted.
+     */
+    public boolean wasAborted() {
+        return aborted;
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Set of board squares stored as a bitmask, with square (row, col) at bit
+ * row * boardSize + col. Boards of up to 64 squares fit in a single long;
+ * larger boards use several words. Winning sequences are found with
+ * shift-and-AND steps over whole words instead of reading squares one by one.
+ */
+public class BitBoard {
+    private final int boardSize;
+    private final long[] words;
+
+    private final long[] notLastCol;  // Squares that have a neighbour to their right
+    private final long[] notFirstCol; // Squares that have a neighbour to their left
+    private final long[] allSquares;
+
+    private final long[] run;      // Scratch space for multi-word run detection
+    private final long[] shifted;
+
+    /**
+     * Creates an empty BitBoard for a boardSize x boardSize board.
+     *
+     * @param boardSize the size of the board.
+     */
+    public BitBoard(int boardSize) {
+        this.boardSize = boardSize;
+        int wordCount = (boardSize * boardSize + 63) >>> 6;
+        this.words = new long[wordCount];
+        this.notLastCol = new long[wordCount];
+        this.notFirstCol = new long[wordCount];
+        this.allSquares = new long[wordCount];
+        this.run = new long[wordCount];
+        this.shifted = new long[wordCount];
+
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+                int square = row * boardSize + col;
+                long bit = 1L << square;
+                allSquares[square >>> 6] |= bit;
+                if (col < boardSize - 1) notLastCol[square >>> 6] |= bit;
+                if (col > 0) notFirstCol[square >>> 6] |= bit;
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of another BitBoard. The masks are shared, since they never change.
+     *
+     * @param other the BitBoard to copy.
+     */
+    public BitBoard(BitBoard other) {
+        this.boardSize = other.boardSize;
+        this.words = other.words.clone();
+        this.notLastCol = other.notLastCol;
+        this.notFirstCol = other.notFirstCol;
+        this.allSquares = other.allSquares;
+        this.run = new long[words.length];
+        this.shifted = new long[words.length];
+    }
+
+    /**
+     * Adds a square to the set.
+     *
+     * @param square the index of the square.
+     */
+    public void set(int square) {
+        words[square >>> 6] |= 1L << square;
+    }
+
+    /**
+     * Removes a square from the set.
+     *
+     * @param square the index of the square.
+     */
+    public void clear(int square) {
+        words[square >>> 6] &= ~(1L << square);
+    }
+
+    /**
+     * Checks if a square is in the set.
+     *
+     * @param square the index of the square.
+     * @return true if the square is set, false otherwise.
+     */
+    public boolean get(int square) {
+        return (words[square >>> 6] & (1L << square)) != 0;
+    }
+
+    /**
+     * Returns the number of squares in the set.
+     *
+     * @return the number of set squares.
+     */
+    public int count() {
+        int total = 0;
+        for (long word : words) {
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+
+    /**
+     * Checks if the set contains lengthToWin consecutive squares in a row,
+     * column or diagonal.
+     *
+     * @param lengthToWin the length of the sequence to look for.
+     * @return true if such a sequence exists, false otherwise.
+     */
+    public boolean hasRun(int lengthToWin) {
+        if (words.length == 1) {
+            long b = words[0];
+            return hasRunInDirection(b, 1, notLastCol[0], lengthToWin)             // Horizontal
+                || hasRunInDirection(b, boardSize, allSquares[0], lengthToWin)     // Vertical
+                || hasRunInDirection(b, boardSize + 1, notLastCol[0], lengthToWin) // Diagonal top-left to bottom-right
+                || hasRunInDirection(b, boardSize - 1, notFirstCol[0], lengthToWin); // Diagonal top-right to bottom-left
+        }
+        return hasRunInDirection(1, notLastCol, lengthToWin)
+            || hasRunInDirection(boardSize, allSquares, lengthToWin)
+            || hasRunInDirection(boardSize + 1, notLastCol, lengthToWin)
+            || hasRunInDirection(boardSize - 1, notFirstCol, lengthToWin);
+    }
+
+    /**
+     * Single-word run detection. After step i, t holds the squares whose i-th
+     * neighbour in the direction is set, and run holds the squares that start
+     * a sequence of i + 1 set squares.
+     *
+     * @param b the bitmask of the set.
+     * @param shift the bit distance between neighbouring squares in the direction.
+     * @param mask the squares that have a neighbour in the direction.
+     * @param lengthToWin the length of the sequence to look for.
+     * @return true if a sequence of lengthToWin squares exists in the direction.
+     */
+    private static boolean hasRunInDirection(long b, int shift, long mask, int lengthToWin) {
+        long run = b;
+        long t = b;
+        for (int i = 1; i < lengthToWin && run != 0; i++) {
+            t = (t >>> shift) & mask;
+            run &= t;
+        }
+        return run != 0;
+    }
+
+    /**
+     * Multi-word version of run detection, using the preallocated scratch arrays.
+     *
+     * @param shift the bit distance between neighbouring squares in the direction.
+     * @param mask the squares that have a neighbour in the direction.
+     * @param lengthToWin the length of the sequence to look for.
+     * @return true if a sequence of lengthToWin squares exists in the direction.
+     */
+    private boolean hasRunInDirection(int shift, long[] mask, int lengthToWin) {
+        System.arraycopy(words, 0, run, 0, words.length);
+        System.arraycopy(words, 0, shifted, 0, words.length);
+        for (int i = 1; i < lengthToWin; i++) {
+            shiftRight(shifted, shift);
+            long any = 0;
+            for (int w = 0; w < words.length; w++) {
+                shifted[w] &= mask[w];
+                run[w] &= shifted[w];
+                any |= run[w];
+            }
+            if (any == 0) return false;
+        }
+        for (long word : run) {
+            if (word != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Shifts a multi-word bitmask towards bit 0 in place.
+     *
+     * @param bits the bitmask, least significant word first.
+     * @param shift the number of bits to shift by.
+     */
+    private static void shiftRight(long[] bits, int shift) {
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+        for (int w = 0; w < bits.length; w++) {
+            int from = w + wordShift;
+            long low = from < bits.length ? bits[from] : 0L;
+            long high = from + 1 < bits.length ? bits[from + 1] : 0L;
+            bits[w] = bitShift == 0 ? low : (low >>> bitShift) | (high << (64 - bitShift));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe dictionary of configurations and scores. The table is split into
+ * segments, each guarding its own group of buckets with its own lock, so that
+ * threads writing to different segments do not wait for each other.
+ *
+ * Reads never lock. Buckets hold chains of immutable nodes: put adds a node in
+ * front of a chain and remove copies the part of the chain in front of the
+ * removed node, so a reader always walks a complete chain. A segment that gets
+ * too full is resized on its own, by the thread holding its lock, while the
+ * other segments stay in use; readers keep reading the old buckets of the
+ * segment, which are not changed anymore, until the new ones are published.
+ */
+public class ConcurrentHashDictionary implements DictionaryADT {
+    private final Segment[] segments;
+    private final int segmentShift;   // Shift of the hash bits that select the segment
+
+    private static final double RESIZE_THRESHOLD = 0.75;
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    /**
+     * Constructs a new ConcurrentHashDictionary with an initial capacity and the
+     * default number of segments.
+     *
+     * @param initialCapacity the initial capacity of the hash table.
+     */
+    public ConcurrentHashDictionary(int initialCapacity) {
+        this(initialCapacity, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Constructs a new ConcurrentHashDictionary with an initial capacity, spread
+     * over a number of segments. The number of segments is rounded up to a power
+     * of two, and so is the capacity of each segment.
+     *
+     * @param initialCapacity the initial capacity of the hash table.
+     * @param segmentCount the number of segments, at most the number of threads
+     *                     expected to write at the same time.
+     * @throws IllegalArgumentException if segmentCount is not positive.
+     */
+    public ConcurrentHashDictionary(int initialCapacity, int segmentCount) {
+        if (segmentCount < 1 || segmentCount > (1 << 16)) {
+            throw new IllegalArgumentException("Invalid segment count: " + segmentCount);
+        }
+        int count = Integer.highestOneBit(segmentCount - 1) << 1;
+        if (segmentCount == 1) count = 1;
+        this.segments = new Segment[count];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+
+        int perSegment = Math.max(2, (initialCapacity + count - 1) / count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Spreads the bits of the String hash code, so that both the high bits (which
+     * select the segment) and the low bits (which select the bucket) vary.
+     *
+     * @param key the configuration string to be hashed.
+     * @return the hash of the key.
+     */
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the segment holding the given hash.
+     *
+     * @param hash the hash of a key.
+     * @return the segment of the key.
+     */
+    private Segment segmentFor(int hash) {
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    /**
+     * Inserts a new Data record into the dictionary. If a record with the same
+     * configuration already exists, a DictionaryException is thrown.
+     *
+     * @param entry the Data object to insert into the dictionary.
+     * @return 1 if the record shares its bucket with other records, 0 otherwise.
+     * @throws DictionaryException if an entry with the same configuration already exists.
+     */
+    @Override
+    public int put(Data entry) {
+        String key = entry.getConfiguration();
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, entry.getScore());
+    }
+
+    /**
+     * Removes the record with the specified configuration key from the dictionary.
+     *
+     * @param key the configuration string of the record to be removed.
+     * @throws DictionaryException if no entry with the specified configuration is found.
+     */
+    @Override
+    public void remove(String key) {
+        int hash = hash(key);
+        segmentFor(hash).remove(key, hash);
+    }
+
+    /**
+     * Retrieves the score associated with the specified configuration key,
+     * without locking.
+     *
+     * @param key the configuration string whose score is to be retrieved.
+     * @return the score associated with the key, or -1 if the key is not found.
+     */
+    @Override
+    public int get(String key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * Returns the number of records in the dictionary. While other threads are
+     * writing, the count of each segment is read at a slightly different time.
+     *
+     * @return the number of records.
+     */
+    @Override
+    public int numRecords() {
+        int total = 0;
+        for (Segment segment : segments) {
+            total += segment.count;
+        }
+        return total;
+    }
+
+    /**
+     * Immutable link of a bucket chain.
+     */
+    private static final class Node {
+        final String key;
+        final int hash;
+        final int score;
+        final Node next;
+
+        Node(String key, int hash, int score, Node next) {
+            this.key = key;
+            this.hash = hash;
+            this.score = score;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Group of buckets with its own lock, used by the writers only.
+     */
+    private static final class Segment {
+        private volatile AtomicReferenceArray<Node> buckets;
+        private volatile int count;
+
+        Segment(int capacity) {
+            this.buckets = new AtomicReferenceArray<>(Integer.highestOneBit(capacity - 1) << 1);
+        }
+
+        int get(String key, int hash) {
+            AtomicReferenceArray<Node> table = buckets;
+            for (Node node = table.get(hash & (table.length() - 1)); node != null; node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+                    return node.score;
+                }
+            }
+            return -1;
+        }
+
+        synchronized int put(String key, int hash, int score) {
+            if (count + 1 > buckets.length() * RESIZE_THRESHOLD) {
+                expandAndRehash();
+            }
+            AtomicReferenceArray<Node> table = buckets;
+            int index = hash & (table.length() - 1);
+            Node first = table.get(index);
+            for (Node node = first; node != null; node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+                    throw new DictionaryException();
+                }
+            }
+            table.set(index, new Node(key, hash, score, first));
+            count++;
+            return first != null ? 1 : 0;
+        }
+
+        synchronized void remove(String key, int hash) {
+            AtomicReferenceArray<Node> table = buckets;
+            int index = hash & (table.length() - 1);
+            Node first = table.get(index);
+            Node target = first;
+            while (target != null && !(target.hash == hash && target.key.equals(key))) {
+                target = target.next;
+            }
+            if (target == null) {
+                throw new DictionaryException();
+            }
+
+            // Copy the nodes in front of the removed one, keep the ones behind it
+            Node chain = target.next;
+            for (Node node = first; node != target; node = node.next) {
+                chain = new Node(node.key, node.hash, node.score, chain);
+            }
+            table.set(index, chain);
+            count--;
+        }
+
+        /**
+         * Doubles the number of buckets of the segment. The old buckets are left
+         * unchanged for the readers still using them.
+         */
+        private void expandAndRehash() {
+            AtomicReferenceArray<Node> oldTable = buckets;
+            AtomicReferenceArray<Node> newTable = new AtomicReferenceArray<>(oldTable.length() * 2);
+            int mask = newTable.length() - 1;
+            for (int i = 0; i < oldTable.length(); i++) {
+                for (Node node = oldTable.get(i); node != null; node = node.next) {
+                    int index = node.hash & mask;
+                    newTable.set(index, new Node(node.key, node.hash, node.score, newTable.get(index)));
+                }
+            }
+            buckets = newTable;
+        }
+    }
+}
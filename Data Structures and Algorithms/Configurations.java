@@ -1,69 +1,559 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
 public class Configurations {
-    private char[][] board; // Game board represented as a 2D char array
+    private BitBoard xSquares; // Squares taken by the human player ('X')
+    private BitBoard oSquares; // Squares taken by the computer ('O')
     private int boardSize; // Size of the board (boardSize x boardSize)
     private int lengthToWin; // Sequence length required to win
     private int maxLevels; // Max depth for game tree exploration
 
+    private int emptySquares; // Number of empty squares left on the board
+    private char winner; // Symbol with a winning sequence on the board, or ' ' if there is none
+
+    private long[][] zobristKeys; // Random key per (symbol, square), X in row 0 and O in row 1
+    private long hashKey; // Zobrist hash of the current board, updated by savePlay
+
+    private int[][] symmetricSquares; // Square that each square is mapped to by each of the 8 board symmetries
+    private long[] symmetricKeys; // Zobrist hash of the board as seen through each symmetry, identity first
+    private boolean useSymmetry; // When set, the cache is keyed by the canonical (smallest) symmetric hash
+
+    private int candidateRadius; // Moves are searched within this Chebyshev distance of a stone, 0 for anywhere
+    private int[] nearbyStones; // Number of stones within candidateRadius of each square, kept when candidateRadius > 0
+
+    private boolean countLines; // When set, savePlay keeps the stone counts of every potential winning line
+    private int[][] squareLines; // Potential winning lines (runs of lengthToWin squares) through each square
+    private int[][] lineStones; // Stones of each player in each line, 'X' in row 0 and 'O' in row 1
+    private int[][] openLines; // Lines holding exactly c stones of a player and none of the other, per player and c
+
+    private boolean verifyHashes; // When set, every hash lookup is checked against the board string
+    private HashMap<Long, String> verifiedConfigs;
+    private int hashCollisions;
+
+    private static final long TABLE_BYTES = 16L << 20; // Memory budget of a transposition table
+
+    private static final long ZOBRIST_SEED = 0x5DEECE66DL; // Fixed so that hash keys are stable between runs
+
+    private static final int SYMMETRIES = 8;
+    private static final int[] INVERSE_SYMMETRY = {0, 3, 2, 1, 4, 5, 6, 7}; // Only the quarter turns are not their own inverse
+
     public Configurations(int boardSize, int lengthToWin, int maxLevels) {
         this.boardSize = boardSize;
         this.lengthToWin = lengthToWin;
         this.maxLevels = maxLevels;
-        this.board = new char[boardSize][boardSize];
+        this.xSquares = new BitBoard(boardSize);
+        this.oSquares = new BitBoard(boardSize);
 
-        // Initialize all board positions with a space character
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                board[i][j] = ' ';
+        // Generate the Zobrist keys; the empty board hashes to 0
+        Random random = new Random(ZOBRIST_SEED);
+        this.zobristKeys = new long[2][boardSize * boardSize];
+        for (int s = 0; s < 2; s++) {
+            for (int i = 0; i < boardSize * boardSize; i++) {
+                zobristKeys[s][i] = random.nextLong();
+            }
+        }
+        this.hashKey = 0L;
+
+        // Rotations by 0, 90, 180 and 270 degrees, then the four reflections
+        this.symmetricSquares = new int[SYMMETRIES][boardSize * boardSize];
+        int last = boardSize - 1;
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+                int square = row * boardSize + col;
+                symmetricSquares[0][square] = square;
+                symmetricSquares[1][square] = col * boardSize + (last - row);
+                symmetricSquares[2][square] = (last - row) * boardSize + (last - col);
+                symmetricSquares[3][square] = (last - col) * boardSize + row;
+                symmetricSquares[4][square] = row * boardSize + (last - col);
+                symmetricSquares[5][square] = (last - row) * boardSize + col;
+                symmetricSquares[6][square] = col * boardSize + row;
+                symmetricSquares[7][square] = (last - col) * boardSize + (last - row);
+            }
+        }
+        this.symmetricKeys = new long[SYMMETRIES];
+        this.useSymmetry = true;
+
+        this.emptySquares = boardSize * boardSize;
+        this.winner = ' ';
+    }
+
+    /**
+     * Creates a copy of another board, so that it can be searched independently,
+     * for example by another thread. Hash verification is not copied.
+     *
+     * @param other the board to copy.
+     */
+    public Configurations(Configurations other) {
+        this.boardSize = other.boardSize;
+        this.lengthToWin = other.lengthToWin;
+        this.maxLevels = other.maxLevels;
+        this.xSquares = new BitBoard(other.xSquares);
+        this.oSquares = new BitBoard(other.oSquares);
+        this.emptySquares = other.emptySquares;
+        this.winner = other.winner;
+
+        // The key and symmetry tables never change, so they are shared
+        this.zobristKeys = other.zobristKeys;
+        this.hashKey = other.hashKey;
+        this.symmetricSquares = other.symmetricSquares;
+        this.symmetricKeys = other.symmetricKeys.clone();
+        this.useSymmetry = other.useSymmetry;
+        this.candidateRadius = other.candidateRadius;
+        this.nearbyStones = (other.nearbyStones == null) ? null : other.nearbyStones.clone();
+        this.countLines = other.countLines;
+        if (countLines) {
+            this.squareLines = other.squareLines;   // Never changes
+            this.lineStones = new int[][] {other.lineStones[0].clone(), other.lineStones[1].clone()};
+            this.openLines = new int[][] {other.openLines[0].clone(), other.openLines[1].clone()};
+        }
+    }
+
+    /**
+     * Creates a board from its compact form: the boardSize * boardSize symbols
+     * of the squares in row-major order, 'X', 'O' or ' ' for an empty square.
+     * This is the form returned by toString.
+     *
+     * @param boardSize the size of the board.
+     * @param lengthToWin the length of the sequence needed to win.
+     * @param board the symbols of the squares.
+     * @return the board.
+     * @throws IllegalArgumentException if the string has the wrong length or an unknown symbol.
+     */
+    public static Configurations fromString(int boardSize, int lengthToWin, String board) {
+        if (board.length() != boardSize * boardSize) {
+            throw new IllegalArgumentException("Expected " + boardSize * boardSize + " squares, got " + board.length());
+        }
+        Configurations configs = new Configurations(boardSize, lengthToWin, 0);
+        for (int square = 0; square < board.length(); square++) {
+            char symbol = board.charAt(square);
+            if (symbol == 'X' || symbol == 'O') {
+                configs.savePlay(square / boardSize, square % boardSize, symbol);
+            } else if (symbol != ' ') {
+                throw new IllegalArgumentException("Unknown symbol '" + symbol + "' at square " + square);
             }
         }
+        return configs;
+    }
+
+    /**
+     * Returns the compact form of the board, as read by fromString.
+     *
+     * @return the symbols of the squares in row-major order.
+     */
+    @Override
+    public String toString() {
+        return boardToString(0);
     }
 
     /**
-     * Creates and returns a new HashDictionary with a specified size.
-     * This size should be a prime number between 6000 and 10000.
+     * Creates and returns a new dictionary for caching board configurations.
+     * An open-addressing LongHashDictionary is used so that lookups in the
+     * game tree search probe flat arrays instead of linked buckets.
      *
-     * @return a HashDictionary with an initial size of 7000.
+     * @return a LongHashDictionary with an initial capacity of 7000.
      */
-    public HashDictionary createDictionary() {
-        return new HashDictionary(7000);
+    public LongHashDictionary createDictionary() {
+        return new LongHashDictionary(7000);
     }
 
     /**
-     * Checks if the current board configuration exists in the dictionary.
-     * Returns the associated score if found, or -1 if not found.
+     * Checks if the current board configuration exists in the dictionary, using the
+     * Zobrist hash of the board as key instead of building a configuration string.
      *
      * @param hashTable the dictionary to search in.
      * @return the score of the configuration if it exists, or -1 otherwise.
+     * @throws DictionaryException if hash verification is on and a collision is detected.
      */
-    public int repeatedConfiguration(HashDictionary hashTable) {
-        String config = boardToString();
-        return hashTable.get(config);
+    public int repeatedConfiguration(LongHashDictionary hashTable) {
+        int symmetry = canonicalSymmetry();
+        if (verifyHashes) verifyHashKey(symmetry);
+        return hashTable.get(symmetricKeys[symmetry]);
     }
 
     /**
-     * Adds the current board configuration and its score to the dictionary.
+     * Adds the current board configuration and its score to the dictionary,
+     * keyed by the Zobrist hash of the board.
      *
      * @param hashTable the dictionary to add to.
      * @param score the score associated with the configuration.
+     * @throws DictionaryException if hash verification is on and a collision is detected.
      */
-    public void addConfiguration(HashDictionary hashTable, int score) {
-        String config = boardToString();
+    public void addConfiguration(LongHashDictionary hashTable, int score) {
+        int symmetry = canonicalSymmetry();
+        if (verifyHashes) verifyHashKey(symmetry);
         try {
-            hashTable.put(new Data(config, score));
+            hashTable.put(symmetricKeys[symmetry], score);
         } catch (DictionaryException e) {
             e.printStackTrace(); // Print error if configuration already exists
         }
     }
 
+    /**
+     * Creates and returns a new transposition table for alpha-beta search.
+     * The table has a fixed memory budget, so deep searches never trigger a rehash.
+     *
+     * @return a two-tier TranspositionTable of TABLE_BYTES bytes.
+     */
+    public TranspositionTable createTranspositionTable() {
+        return new TranspositionTable(TABLE_BYTES, TranspositionTable.TWO_TIER);
+    }
+
+    /**
+     * Looks up the transposition table entry of the current board configuration.
+     * Entries are shared by symmetric configurations, so the best move of the
+     * entry is mapped back from the canonical board to the current one.
+     *
+     * @param table the transposition table to search in.
+     * @return the packed entry, or TranspositionTable.MISS if the configuration is not stored.
+     * @throws DictionaryException if hash verification is on and a collision is detected.
+     */
+    public long probeConfiguration(TranspositionTable table) {
+        int symmetry = canonicalSymmetry();
+        if (verifyHashes) verifyHashKey(symmetry);
+        long entry = table.probe(symmetricKeys[symmetry]);
+        int move = TranspositionTable.move(entry);
+        if (entry == TranspositionTable.MISS || move < 0 || symmetry == 0) {
+            return entry;
+        }
+        return TranspositionTable.withMove(entry, symmetricSquares[INVERSE_SYMMETRY[symmetry]][move]);
+    }
+
+    /**
+     * Stores the search result of the current board configuration in the transposition table.
+     *
+     * @param table the transposition table to store in.
+     * @param score the score found by the search.
+     * @param bound TranspositionTable.EXACT, LOWER_BOUND or UPPER_BOUND.
+     * @param depth the remaining depth the configuration was searched to.
+     * @param move the index (row * boardSize + col) of the best move, or -1.
+     * @throws DictionaryException if hash verification is on and a collision is detected.
+     */
+    public void storeConfiguration(TranspositionTable table, int score, int bound, int depth, int move) {
+        int symmetry = canonicalSymmetry();
+        if (verifyHashes) verifyHashKey(symmetry);
+        table.store(symmetricKeys[symmetry], score, bound, depth,
+                    move < 0 ? move : symmetricSquares[symmetry][move]);
+    }
+
+    /**
+     * Returns the size of the board.
+     *
+     * @return the number of rows (and columns) of the board.
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    /**
+     * Returns the length of the sequence needed to win.
+     *
+     * @return the number of symbols in a row needed to win.
+     */
+    public int getLengthToWin() {
+        return lengthToWin;
+    }
+
+    /**
+     * Returns the 64-bit Zobrist hash of the current board configuration.
+     *
+     * @return the hash key of the board.
+     */
+    public long getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * Returns the hash key shared by the current configuration and all of its
+     * rotations and reflections, which is the key used for the caches.
+     *
+     * @return the canonical hash key of the board.
+     */
+    public long getCanonicalKey() {
+        return symmetricKeys[canonicalSymmetry()];
+    }
+
+    /**
+     * Maps a square of the current board to the same square of the canonical
+     * board, the one seen through the symmetry that gives getCanonicalKey. A
+     * move stored for the canonical board is then valid for every board
+     * symmetric to it.
+     *
+     * @param square the index of a square of the current board.
+     * @return the index of the square on the canonical board.
+     */
+    public int toCanonicalSquare(int square) {
+        return symmetricSquares[canonicalSymmetry()][square];
+    }
+
+    /**
+     * Maps a square of the canonical board back to the current board; the
+     * inverse of toCanonicalSquare.
+     *
+     * @param square the index of a square of the canonical board.
+     * @return the index of the square on the current board.
+     */
+    public int fromCanonicalSquare(int square) {
+        return symmetricSquares[INVERSE_SYMMETRY[canonicalSymmetry()]][square];
+    }
+
+    /**
+     * Turns symmetry canonicalization of the cache keys on or off. It is on by
+     * default, and should only be changed before a cache is filled.
+     *
+     * @param useSymmetry true to share cache entries between symmetric configurations.
+     */
+    public void setSymmetryCanonicalization(boolean useSymmetry) {
+        this.useSymmetry = useSymmetry;
+    }
+
+    /**
+     * Checks if playing at (row, col) leads to the same configuration, up to a
+     * rotation or reflection, as playing at a square with a smaller index. Only
+     * one move of each such group needs to be searched. This is meant for the
+     * root of the search, where the board is often still symmetric.
+     *
+     * @param row the row of the move.
+     * @param col the column of the move.
+     * @return true if an equivalent move with a smaller index exists, false otherwise.
+     */
+    public boolean isSymmetricDuplicate(int row, int col) {
+        if (!useSymmetry) return false;
+        int square = row * boardSize + col;
+        for (int t = 1; t < SYMMETRIES; t++) {
+            if (symmetricSquares[t][square] < square && symmetricKeys[t] == symmetricKeys[0]
+                    && isInvariantUnder(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Restricts the moves returned by candidateMoves to the empty squares within
+     * a Chebyshev distance (the number of king steps) of some stone. On large
+     * boards this keeps the number of moves searched at each node bounded by
+     * the number of stones, rather than by the number of squares.
+     *
+     * @param radius the maximum distance of a candidate move from a stone, or 0
+     *               for every empty square.
+     * @throws IllegalArgumentException if radius is negative.
+     */
+    public void setCandidateRadius(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Candidate radius must not be negative: " + radius);
+        }
+        this.candidateRadius = radius;
+        this.nearbyStones = null;
+        if (radius > 0) {
+            nearbyStones = new int[boardSize * boardSize];
+            for (int square = 0; square < nearbyStones.length; square++) {
+                if (!squareIsEmpty(square / boardSize, square % boardSize)) {
+                    updateNearbyStones(square / boardSize, square % boardSize, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the radius set with setCandidateRadius.
+     *
+     * @return the candidate radius, 0 if moves are not restricted.
+     */
+    public int getCandidateRadius() {
+        return candidateRadius;
+    }
+
+    /**
+     * Writes the moves worth searching on the current board, in row-major order:
+     * the empty squares near a stone, as set by setCandidateRadius. When the
+     * moves are not restricted, the board is empty, or no empty square is near a
+     * stone, every empty square is a candidate.
+     *
+     * @param moves the array to write the squares (row * boardSize + col) to;
+     *              it must hold boardSize * boardSize squares.
+     * @return the number of candidate moves written.
+     */
+    public int candidateMoves(int[] moves) {
+        int count = 0;
+        int squares = boardSize * boardSize;
+        if (candidateRadius > 0 && emptySquares < squares) {
+            for (int square = 0; square < squares; square++) {
+                if (nearbyStones[square] > 0 && !xSquares.get(square) && !oSquares.get(square)) {
+                    moves[count++] = square;
+                }
+            }
+            if (count > 0) return count;
+        }
+        for (int square = 0; square < squares; square++) {
+            if (!xSquares.get(square) && !oSquares.get(square)) {
+                moves[count++] = square;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Turns on the line counters read by openLineCount. From then on savePlay
+     * keeps, for every run of lengthToWin squares where a win could still be
+     * made, the number of stones of each player in it. This costs a few
+     * operations per play, so it is only done for evaluators that need it.
+     */
+    public void enableLineCounts() {
+        if (countLines) return;
+        List<int[]> lines = new ArrayList<>();
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int[] d : directions) {
+            for (int row = 0; row < boardSize; row++) {
+                for (int col = 0; col < boardSize; col++) {
+                    int endRow = row + (lengthToWin - 1) * d[0];
+                    int endCol = col + (lengthToWin - 1) * d[1];
+                    if (endRow < boardSize && endCol >= 0 && endCol < boardSize) {
+                        int[] line = new int[lengthToWin];
+                        for (int k = 0; k < lengthToWin; k++) {
+                            line[k] = (row + k * d[0]) * boardSize + col + k * d[1];
+                        }
+                        lines.add(line);
+                    }
+                }
+            }
+        }
+
+        int[] linesPerSquare = new int[boardSize * boardSize];
+        for (int[] line : lines) {
+            for (int square : line) linesPerSquare[square]++;
+        }
+        squareLines = new int[boardSize * boardSize][];
+        for (int square = 0; square < squareLines.length; square++) {
+            squareLines[square] = new int[linesPerSquare[square]];
+            linesPerSquare[square] = 0;
+        }
+        for (int l = 0; l < lines.size(); l++) {
+            for (int square : lines.get(l)) {
+                squareLines[square][linesPerSquare[square]++] = l;
+            }
+        }
+
+        lineStones = new int[2][lines.size()];
+        openLines = new int[2][lengthToWin + 1];
+        openLines[0][0] = lines.size();
+        openLines[1][0] = lines.size();
+        countLines = true;
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            if (xSquares.get(square)) updateLines(square, 0, 1);
+            else if (oSquares.get(square)) updateLines(square, 1, 1);
+        }
+    }
+
+    /**
+     * Returns the number of potential winning lines that hold exactly the given
+     * number of stones of a player and none of the other player's. Lines with
+     * no stones at all are counted for both players. enableLineCounts must have
+     * been called.
+     *
+     * @param symbol the player, 'X' or 'O'.
+     * @param stones the number of stones, from 0 to lengthToWin.
+     * @return the number of such lines.
+     */
+    public int openLineCount(char symbol, int stones) {
+        return openLines[symbol == 'X' ? 0 : 1][stones];
+    }
+
+    /**
+     * Turns hash verification on or off. While it is on, every hash-keyed lookup
+     * remembers the board string seen for each key and reports two different
+     * boards sharing a key. This is meant for debugging, as it stores every board.
+     *
+     * @param verify true to check every hash key against the board.
+     */
+    public void setHashVerification(boolean verify) {
+        this.verifyHashes = verify;
+        this.verifiedConfigs = verify ? new HashMap<>() : null;
+    }
+
+    /**
+     * Returns the number of hash collisions detected while verification was on.
+     *
+     * @return the number of detected collisions.
+     */
+    public int getHashCollisions() {
+        return hashCollisions;
+    }
+
     /**
      * Saves a play on the board by placing the specified symbol at given coordinates.
+     * The hash key is updated by removing the old symbol's key and adding the new one.
+     * A placed symbol is checked for a win only along the four lines through its square.
      *
      * @param row the row on the board.
      * @param col the column on the board.
-     * @param symbol the symbol to place ('X' or 'O').
+     * @param symbol the symbol to place ('X' or 'O'), or ' ' to clear the square.
      */
     public void savePlay(int row, int col, char symbol) {
-        board[row][col] = symbol;
+        int square = row * boardSize + col;
+        if (xSquares.get(square)) {
+            xSquares.clear(square);
+            toggleKeys(0, square);
+            emptySquares++;
+            if (candidateRadius > 0) updateNearbyStones(row, col, -1);
+            if (countLines) updateLines(square, 0, -1);
+        } else if (oSquares.get(square)) {
+            oSquares.clear(square);
+            toggleKeys(1, square);
+            emptySquares++;
+            if (candidateRadius > 0) updateNearbyStones(row, col, -1);
+            if (countLines) updateLines(square, 1, -1);
+        }
+        if (winner != ' ') {
+            // Only a removal can undo a win, so the full check runs on terminal boards alone
+            winner = oSquares.hasRun(lengthToWin) ? 'O' : xSquares.hasRun(lengthToWin) ? 'X' : ' ';
+        }
+
+        if (symbol == 'X') {
+            xSquares.set(square);
+            toggleKeys(0, square);
+            emptySquares--;
+        } else if (symbol == 'O') {
+            oSquares.set(square);
+            toggleKeys(1, square);
+            emptySquares--;
+        }
+        if (symbol != ' ' && candidateRadius > 0) updateNearbyStones(row, col, 1);
+        if (symbol != ' ' && countLines) updateLines(square, symbol == 'X' ? 0 : 1, 1);
+        if (symbol != ' ' && winner == ' ' && completesSequence(row, col, symbol == 'X' ? xSquares : oSquares)) {
+            winner = symbol;
+        }
+    }
+
+    /**
+     * Checks if the last play completed a winning sequence. Since plays are
+     * never made on a finished board, this is the case exactly when some
+     * player has a winning sequence.
+     *
+     * @return true if there is a winning sequence on the board, false otherwise.
+     */
+    public boolean lastPlayWins() {
+        return winner != ' ';
+    }
+
+    /**
+     * Checks if the game is over, either because a player has won or because
+     * the board is full. This takes constant time.
+     *
+     * @return true if the board is in a terminal state, false otherwise.
+     */
+    public boolean isTerminal() {
+        return winner != ' ' || emptySquares == 0;
+    }
+
+    /**
+     * Returns the number of empty squares on the board.
+     *
+     * @return the number of empty squares.
+     */
+    public int emptySquareCount() {
+        return emptySquares;
     }
 
     /**
@@ -74,7 +564,19 @@ public class Configurations {
      * @return true if the square is empty, false otherwise.
      */
     public boolean squareIsEmpty(int row, int col) {
-        return board[row][col] == ' ';
+        int square = row * boardSize + col;
+        return !xSquares.get(square) && !oSquares.get(square);
+    }
+
+    /**
+     * Returns the symbol on the specified board square.
+     *
+     * @param row the row of the square.
+     * @param col the column of the square.
+     * @return 'X', 'O', or ' ' if the square is empty.
+     */
+    public char symbolAt(int row, int col) {
+        return symbolAt(row * boardSize + col);
     }
 
     /**
@@ -84,17 +586,8 @@ public class Configurations {
      * @return true if there is a winning sequence, false otherwise.
      */
     public boolean wins(char symbol) {
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                if (checkWinInDirection(i, j, 0, 1, symbol) ||  // Horizontal
-                    checkWinInDirection(i, j, 1, 0, symbol) ||  // Vertical
-                    checkWinInDirection(i, j, 1, 1, symbol) ||  // Diagonal top-left to bottom-right
-                    checkWinInDirection(i, j, 1, -1, symbol)) { // Diagonal top-right to bottom-left
-                    return true;
-                }
-            }
-        }
-        return false;
+        if (winner == ' ') return false;
+        return winner == symbol || (symbol == 'X' ? xSquares : oSquares).hasRun(lengthToWin);
     }
 
     /**
@@ -103,14 +596,7 @@ public class Configurations {
      * @return true if the game is a draw, false otherwise.
      */
     public boolean isDraw() {
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                if (board[i][j] == ' ') {
-                    return false;
-                }
-            }
-        }
-        return !wins('X') && !wins('O');
+        return emptySquares == 0 && winner == ' ';
     }
 
     /**
@@ -140,7 +626,7 @@ public class Configurations {
      * @return an evaluation score based on the board state.
      */
     public int evaluateMove(int depth, char symbol) {
-        if (depth >= maxLevels || isDraw() || wins('X') || wins('O')) {
+        if (depth >= maxLevels || isTerminal()) {
             return evalBoard(); // Evaluate the board at maximum depth or terminal state
         }
 
@@ -167,42 +653,179 @@ public class Configurations {
     }
 
     /**
-     * Converts the board to a string representation for storage in the dictionary.
+     * Adds a stone to, or removes one from, the counts of the lines through
+     * its square, moving each line to its new entry of openLines.
      *
-     * @return a string representing the current board configuration.
+     * @param square the square of the stone.
+     * @param player 0 for 'X', 1 for 'O'.
+     * @param delta 1 for a placed stone, -1 for a removed one.
      */
-    private String boardToString() {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                sb.append(board[i][j]);
+    private void updateLines(int square, int player, int delta) {
+        int[] mine = lineStones[player];
+        int[] theirs = lineStones[1 - player];
+        for (int line : squareLines[square]) {
+            int before = mine[line];
+            int after = before + delta;
+            mine[line] = after;
+            if (theirs[line] == 0) {
+                // Open for this player before and after; an empty line is open for both
+                openLines[player][before]--;
+                openLines[player][after]++;
+                if (before == 0) openLines[1 - player][0]--;
+                else if (after == 0) openLines[1 - player][0]++;
+            } else if (before == 0) {
+                openLines[1 - player][theirs[line]]--;   // No longer open for the other player
+            } else if (after == 0) {
+                openLines[1 - player][theirs[line]]++;   // Open again for the other player
+            }
+        }
+    }
+
+    /**
+     * Adds a stone to, or removes one from, the counts of stones near each
+     * square within candidateRadius of the stone.
+     *
+     * @param row the row of the stone.
+     * @param col the column of the stone.
+     * @param delta 1 for a placed stone, -1 for a removed one.
+     */
+    private void updateNearbyStones(int row, int col, int delta) {
+        int top = Math.max(0, row - candidateRadius);
+        int bottom = Math.min(boardSize - 1, row + candidateRadius);
+        int left = Math.max(0, col - candidateRadius);
+        int right = Math.min(boardSize - 1, col + candidateRadius);
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                nearbyStones[r * boardSize + c] += delta;
             }
         }
-        return sb.toString();
     }
 
     /**
-     * Generalized helper method to check for a winning sequence in any direction.
+     * Converts the board, as seen through one of its symmetries, to a string
+     * representation for storage in the dictionary.
+     *
+     * @param symmetry the index of the symmetry, 0 for the board as it is.
+     * @return a string representing the transformed board configuration.
+     */
+    private String boardToString(int symmetry) {
+        char[] cells = new char[boardSize * boardSize];
+        for (int square = 0; square < cells.length; square++) {
+            cells[symmetricSquares[symmetry][square]] = symbolAt(square);
+        }
+        return new String(cells);
+    }
+
+    /**
+     * Returns the symbol on a square.
+     *
+     * @param square the index of the square.
+     * @return 'X', 'O', or ' ' if the square is empty.
+     */
+    private char symbolAt(int square) {
+        if (xSquares.get(square)) return 'X';
+        if (oSquares.get(square)) return 'O';
+        return ' ';
+    }
+
+    /**
+     * Adds or removes a symbol's Zobrist key on a square in the hash of the board
+     * and in the hash of each of its symmetric images.
+     *
+     * @param symbolIndex 0 for 'X' or 1 for 'O'.
+     * @param square the index of the square.
+     */
+    private void toggleKeys(int symbolIndex, int square) {
+        long[] keys = zobristKeys[symbolIndex];
+        for (int t = 0; t < SYMMETRIES; t++) {
+            symmetricKeys[t] ^= keys[symmetricSquares[t][square]];
+        }
+        hashKey = symmetricKeys[0];
+    }
+
+    /**
+     * Returns the symmetry under which the board has the smallest hash key. The
+     * board seen through this symmetry is the canonical one used by the caches.
+     *
+     * @return the index of the canonical symmetry, or 0 if canonicalization is off.
+     */
+    private int canonicalSymmetry() {
+        if (!useSymmetry) return 0;
+        int best = 0;
+        for (int t = 1; t < SYMMETRIES; t++) {
+            if (symmetricKeys[t] < symmetricKeys[best]) best = t;
+        }
+        return best;
+    }
+
+    /**
+     * Checks if the board is left unchanged by one of its symmetries.
+     *
+     * @param symmetry the index of the symmetry.
+     * @return true if every square holds the same symbol as its image.
+     */
+    private boolean isInvariantUnder(int symmetry) {
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            if (symbolAt(square) != symbolAt(symmetricSquares[symmetry][square])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the symbol just placed at (row, col) is part of a winning sequence,
+     * looking only along the four lines through that square.
+     *
+     * @param row the row of the placed symbol.
+     * @param col the column of the placed symbol.
+     * @param squares the squares of the player who placed it.
+     * @return true if the placed symbol completes a winning sequence, false otherwise.
+     */
+    private boolean completesSequence(int row, int col, BitBoard squares) {
+        return countInLine(row, col, 0, 1, squares) + countInLine(row, col, 0, -1, squares) + 1 >= lengthToWin  // Horizontal
+            || countInLine(row, col, 1, 0, squares) + countInLine(row, col, -1, 0, squares) + 1 >= lengthToWin  // Vertical
+            || countInLine(row, col, 1, 1, squares) + countInLine(row, col, -1, -1, squares) + 1 >= lengthToWin // Diagonal top-left to bottom-right
+            || countInLine(row, col, 1, -1, squares) + countInLine(row, col, -1, 1, squares) + 1 >= lengthToWin; // Diagonal top-right to bottom-left
+    }
+
+    /**
+     * Counts the consecutive squares of a player next to (row, col) in one direction,
+     * stopping after lengthToWin - 1 squares.
      *
      * @param row the starting row.
      * @param col the starting column.
      * @param rowDir the row direction increment.
      * @param colDir the column direction increment.
-     * @param symbol the symbol to check for ('X' or 'O').
-     * @return true if a winning sequence is found, false otherwise.
+     * @param squares the squares of the player.
+     * @return the number of consecutive squares found.
      */
-    private boolean checkWinInDirection(int row, int col, int rowDir, int colDir, char symbol) {
+    private int countInLine(int row, int col, int rowDir, int colDir, BitBoard squares) {
         int count = 0;
-        for (int k = 0; k < lengthToWin; k++) {
-            int newRow = row + k * rowDir;
-            int newCol = col + k * colDir;
-            if (newRow >= 0 && newRow < boardSize && newCol >= 0 && newCol < boardSize &&
-                board[newRow][newCol] == symbol) {
-                count++;
-            } else {
-                break;
-            }
+        int r = row + rowDir;
+        int c = col + colDir;
+        while (count < lengthToWin - 1 && r >= 0 && r < boardSize && c >= 0 && c < boardSize
+               && squares.get(r * boardSize + c)) {
+            count++;
+            r += rowDir;
+            c += colDir;
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the cache key of the board has not been seen before with a
+     * different canonical board.
+     *
+     * @param symmetry the canonical symmetry of the board.
+     * @throws DictionaryException if the key was already seen with another board.
+     */
+    private void verifyHashKey(int symmetry) {
+        String config = boardToString(symmetry);
+        String previous = verifiedConfigs.putIfAbsent(symmetricKeys[symmetry], config);
+        if (previous != null && !previous.equals(config)) {
+            hashCollisions++;
+            throw new DictionaryException("Hash collision between " + previous + " and " + config);
         }
-        return count == lengthToWin;
     }
 }
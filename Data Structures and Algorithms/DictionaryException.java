@@ -6,4 +6,9 @@ public class DictionaryException extends RuntimeException
 	{
 		super ("Dictionary Error");
 	}
+
+	public DictionaryException(String mssg)
+	{
+		super (mssg);
+	}
 }
\ No newline at end of file
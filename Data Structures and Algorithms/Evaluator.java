@@ -0,0 +1,24 @@
+/* Static evaluation of the boards at the leaves of the game tree search. Scores are
+   from the computer's ('O') point of view: the computer maximizes them and the human
+   ('X') minimizes them.                                                             */
+public interface Evaluator {
+
+  /* Called once with the board a search is going to modify, before the search starts,
+     for example to turn on counters the evaluator reads.                           */
+  public void prepare(Configurations configs);
+
+  /* Returns the score of the board. A board where the computer has won scores
+     maxScore(), one where the human has won scores minScore(), and every other board
+     scores strictly between the two.                                               */
+  public int evaluate(Configurations configs);
+
+  /* Returns the score of a win of the human. */
+  public int minScore();
+
+  /* Returns the score of a win of the computer. */
+  public int maxScore();
+
+  /* Returns the half-width of the window, around the score of the previous iteration,
+     that iterative deepening first searches with.                                  */
+  public int aspirationWindow();
+}
@@ -0,0 +1,161 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Move ordering that combines, from strongest to weakest:
+ * the best move remembered by the transposition table, the killer moves of the
+ * ply (moves that recently caused a cut at the same depth of the tree), and a
+ * history score of how often each move caused cuts, added to a static prior
+ * that favours central squares lying on many potential winning lines.
+ */
+public class HeuristicMoveOrdering implements MoveOrdering {
+    private final int boardSize;
+    private final int[] prior;      // Static score of each square
+    private final int[][] killers;  // Two killer moves per ply, -1 if unset
+    private final int[][] history;  // Cut history per player ('X' in row 0, 'O' in row 1) and square
+    private final int[][] moves;    // Move buffer of each ply
+    private final long[] sortKeys;  // Scratch space holding (score, move) pairs for sorting
+
+    private static final int TT_MOVE_SCORE = 1 << 30;
+    private static final int KILLER_SCORE = 1 << 29;
+    private static final int HISTORY_LIMIT = 1 << 24; // History is halved when it reaches this value
+
+    /**
+     * Creates the tables of the move ordering for a board.
+     *
+     * @param boardSize the size of the board.
+     * @param lengthToWin the length of the sequence needed to win.
+     */
+    public HeuristicMoveOrdering(int boardSize, int lengthToWin) {
+        this(boardSize, lengthToWin, 0);
+    }
+
+    /**
+     * Creates the tables of the move ordering for a board, with the static prior
+     * perturbed by a small random amount. Squares on the same number of lines may
+     * then be tried in a different order, which lets several searches of the same
+     * board explore different parts of the tree first.
+     *
+     * @param boardSize the size of the board.
+     * @param lengthToWin the length of the sequence needed to win.
+     * @param seed the seed of the perturbation, or 0 for none.
+     */
+    public HeuristicMoveOrdering(int boardSize, int lengthToWin, long seed) {
+        int squares = boardSize * boardSize;
+        this.boardSize = boardSize;
+        this.prior = new int[squares];
+        this.killers = new int[squares + 1][2];
+        this.history = new int[2][squares];
+        this.moves = new int[squares + 1][squares];
+        this.sortKeys = new long[squares];
+
+        int center2 = boardSize - 1; // Twice the coordinate of the center
+        for (int row = 0; row < boardSize; row++) {
+            for (int col = 0; col < boardSize; col++) {
+                int distance = Math.max(Math.abs(2 * row - center2), Math.abs(2 * col - center2));
+                prior[row * boardSize + col] = linesThrough(row, col, lengthToWin) * 4 * boardSize
+                                               + (2 * boardSize - distance);
+            }
+        }
+        if (seed != 0) {
+            Random random = new Random(seed);
+            for (int square = 0; square < squares; square++) {
+                prior[square] += random.nextInt(4 * boardSize);
+            }
+        }
+        for (int[] pair : killers) {
+            Arrays.fill(pair, -1);
+        }
+    }
+
+    @Override
+    public int orderMoves(Configurations configs, int ply, int ttMove, char symbol) {
+        int[] list = moves[ply];
+        int[] playerHistory = history[symbol == 'X' ? 0 : 1];
+        int count = configs.candidateMoves(list);
+        for (int i = 0; i < count; i++) {
+            int square = list[i];
+            int score;
+            if (square == ttMove) score = TT_MOVE_SCORE;
+            else if (square == killers[ply][0]) score = KILLER_SCORE + 1;
+            else if (square == killers[ply][1]) score = KILLER_SCORE;
+            else score = playerHistory[square] + prior[square];
+            // Higher scores sort first; ties keep row-major order
+            sortKeys[i] = ((long) (TT_MOVE_SCORE - score) << 32) | square;
+        }
+        Arrays.sort(sortKeys, 0, count);
+        for (int i = 0; i < count; i++) {
+            list[i] = (int) sortKeys[i];
+        }
+        return count;
+    }
+
+    @Override
+    public int[] moveList(int ply) {
+        return moves[ply];
+    }
+
+    @Override
+    public void recordCutoff(int ply, int move, char symbol, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] playerHistory = history[symbol == 'X' ? 0 : 1];
+        playerHistory[move] += (depth + 1) * (depth + 1);
+        if (playerHistory[move] >= HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    /**
+     * Clears the killer moves, which refer to plies of the previous search, and
+     * halves the history so that recent cuts weigh more than old ones.
+     */
+    @Override
+    public void newSearch() {
+        for (int[] pair : killers) {
+            Arrays.fill(pair, -1);
+        }
+        ageHistory();
+    }
+
+    /**
+     * Halves every history score.
+     */
+    private void ageHistory() {
+        for (int[] playerHistory : history) {
+            for (int i = 0; i < playerHistory.length; i++) {
+                playerHistory[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * Counts the sequences of lengthToWin squares, in any direction, that go
+     * through a square.
+     *
+     * @param row the row of the square.
+     * @param col the column of the square.
+     * @param lengthToWin the length of a winning sequence.
+     * @return the number of potential winning lines through the square.
+     */
+    private int linesThrough(int row, int col, int lengthToWin) {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        int lines = 0;
+        for (int[] d : directions) {
+            // Each line is identified by its first square, k steps back from (row, col)
+            for (int k = 0; k < lengthToWin; k++) {
+                int startRow = row - k * d[0];
+                int startCol = col - k * d[1];
+                int endRow = startRow + (lengthToWin - 1) * d[0];
+                int endCol = startCol + (lengthToWin - 1) * d[1];
+                if (startRow >= 0 && startRow < boardSize && startCol >= 0 && startCol < boardSize
+                    && endRow >= 0 && endRow < boardSize && endCol >= 0 && endCol < boardSize) {
+                    lines++;
+                }
+            }
+        }
+        return lines;
+    }
+}
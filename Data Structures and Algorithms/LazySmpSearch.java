@@ -0,0 +1,126 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lazy SMP search: helper threads run the same iterative deepening search as
+ * the main thread, each on its own copy of the board, and the threads only
+ * cooperate through the shared transposition table. A helper that finishes a
+ * subtree first leaves its result in the table, where the other threads find it.
+ *
+ * The helpers are kept from all searching the same tree in the same order:
+ * each one perturbs its move ordering with its own seed, and every other helper
+ * starts at maxLevel 1 and searches one level deeper than the main thread.
+ * The move returned is the one found by the main thread; the helpers are
+ * stopped as soon as it is done.
+ */
+public class LazySmpSearch extends AlphaBetaSearch {
+    private final ExecutorService helperThreads;
+    private final AlphaBetaSearch[] helpers;
+    private final AtomicBoolean helperStop;   // Stops all the helpers at once
+
+    /**
+     * Creates a Lazy SMP search over the given board, which only tells finished
+     * games apart (see OutcomeEvaluator).
+     *
+     * @param configs the board to search from; it is modified during the search.
+     * @param table the transposition table shared by all threads; it must have a fixed size.
+     * @param threads the number of threads to search with, the calling thread included.
+     * @throws IllegalArgumentException if the table can grow, or threads is less than 1.
+     */
+    public LazySmpSearch(Configurations configs, TranspositionTable table, int threads) {
+        this(configs, table, threads, new OutcomeEvaluator());
+    }
+
+    /**
+     * Creates a Lazy SMP search over the given board.
+     *
+     * @param configs the board to search from; it is modified during the search.
+     * @param table the transposition table shared by all threads; it must have a fixed size.
+     * @param threads the number of threads to search with, the calling thread included.
+     * @param evaluator the evaluator of the leaves of the search, shared by all threads.
+     * @throws IllegalArgumentException if the table can grow, or threads is less than 1.
+     */
+    public LazySmpSearch(Configurations configs, TranspositionTable table, int threads, Evaluator evaluator) {
+        super(configs, table, new HeuristicMoveOrdering(configs.getBoardSize(), configs.getLengthToWin()), evaluator);
+        if (!table.isFixedSize()) {
+            throw new IllegalArgumentException("A shared transposition table must have a fixed size");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.helpers = new AlphaBetaSearch[threads - 1];
+        this.helperStop = new AtomicBoolean(false);
+        this.helperThreads = Executors.newFixedThreadPool(Math.max(1, threads - 1), runnable -> {
+            Thread thread = new Thread(runnable, "lazy-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // The move orderings are kept from one move to the next, like the main thread's
+        for (int i = 0; i < helpers.length; i++) {
+            MoveOrdering ordering = new HeuristicMoveOrdering(boardSize, configs.getLengthToWin(), i + 1);
+            helpers[i] = new AlphaBetaSearch(configs, table, ordering, evaluator);
+            helpers[i].stopFlag = helperStop;
+            helpers[i].startLevel = (i % 2 == 0) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Searches the computer's move by iterative deepening, with the helper threads
+     * searching the same board at the same time.
+     *
+     * @param maxDepth the deepest maxLevel to search to.
+     * @param timeMillis the time budget in milliseconds, or 0 for none.
+     * @return the best play found by the main thread, or null if its first search was stopped.
+     */
+    @Override
+    public PosPlay iterativeDeepening(int maxDepth, long timeMillis) {
+        stopFlag.set(false);
+        helperStop.set(false);
+        table.newSearch();
+
+        // Each helper gets a copy of the board, made before any thread modifies it
+        Future<?>[] running = new Future<?>[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            AlphaBetaSearch helper = helpers[i];
+            helper.configs = new Configurations(configs);
+            int helperDepth = maxDepth + helper.startLevel;
+            running[i] = helperThreads.submit(() -> helper.deepen(helperDepth, 0));
+        }
+
+        PosPlay best = deepen(maxDepth, timeMillis);
+
+        helperStop.set(true);
+        for (int i = 0; i < helpers.length; i++) {
+            waitFor(running[i]);
+            nodes += helpers[i].nodes;
+        }
+        return best;
+    }
+
+    /**
+     * Waits for a helper to stop.
+     *
+     * @param helper the helper's task.
+     */
+    private static void waitFor(Future<?> helper) {
+        try {
+            helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Helper search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Shuts down the helper threads of the search.
+     */
+    @Override
+    public void shutdown() {
+        helperThreads.shutdownNow();
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * Open-addressing dictionary specialized for primitive 64-bit keys and int scores.
+ * Keys and scores live in parallel arrays and are found with linear probing, so a
+ * lookup touches a few adjacent array slots instead of walking linked list nodes.
+ *
+ * The DictionaryADT methods are still supported: a configuration string is hashed
+ * to a 64-bit key and the string itself is kept alongside it so that two different
+ * strings sharing a key are never confused.
+ */
+public class LongHashDictionary implements DictionaryADT {
+    private long[] keys;       // Stored keys, EMPTY_KEY marks a free slot
+    private int[] scores;      // Score stored with each key
+    private String[] configs;  // Configuration strings, only allocated once the String API is used
+
+    private int mask;          // Capacity - 1, capacity is always a power of two
+
+    private int recordCount;
+
+    private boolean hasEmptyKey; // EMPTY_KEY itself is kept outside of the table
+    private int emptyKeyScore;
+
+    private static final long EMPTY_KEY = 0L;
+
+    private static final double RESIZE_THRESHOLD = 0.75;
+
+    /**
+     * Constructs a new LongHashDictionary able to hold the given number of records
+     * before its first resize.
+     *
+     * @param initialCapacity the expected number of records.
+     */
+    public LongHashDictionary(int initialCapacity) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(initialCapacity, 2) / RESIZE_THRESHOLD));
+        this.keys = new long[capacity];
+        this.scores = new int[capacity];
+        this.mask = capacity - 1;
+        this.recordCount = 0;
+    }
+
+    /**
+     * Inserts a key and its score. The key must not already be in the dictionary.
+     *
+     * @param key the 64-bit key to insert.
+     * @param score the score associated with the key.
+     * @return 1 if the key could not be placed in its home slot, 0 otherwise.
+     * @throws DictionaryException if the key is already in the dictionary.
+     */
+    public int put(long key, int score) {
+        return insert(key, score, null);
+    }
+
+    /**
+     * Retrieves the score associated with a key.
+     *
+     * @param key the 64-bit key to look up.
+     * @return the score associated with the key, or -1 if the key is not found.
+     */
+    public int get(long key) {
+        if (key == EMPTY_KEY) {
+            return hasEmptyKey ? emptyKeyScore : -1;
+        }
+        int index = slotFor(key);
+        long current;
+        while ((current = keys[index]) != EMPTY_KEY) {
+            if (current == key && (configs == null || configs[index] == null)) {
+                return scores[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the record with the given key.
+     *
+     * @param key the 64-bit key of the record to be removed.
+     * @throws DictionaryException if no entry with the key is found.
+     */
+    public void remove(long key) {
+        if (key == EMPTY_KEY) {
+            if (!hasEmptyKey) throw new DictionaryException();
+            hasEmptyKey = false;
+            recordCount--;
+            return;
+        }
+        int index = find(key, null);
+        if (index < 0) throw new DictionaryException();
+        deleteSlot(index);
+    }
+
+    /**
+     * Inserts a new Data record into the dictionary. If a record with the same
+     * configuration already exists, a DictionaryException is thrown.
+     *
+     * @param pair the Data object to insert into the dictionary.
+     * @return 1 if the record could not be placed in its home slot, 0 otherwise.
+     * @throws DictionaryException if an entry with the same configuration already exists.
+     */
+    @Override
+    public int put(Data pair) {
+        String config = pair.getConfiguration();
+        return insert(stringKey(config), pair.getScore(), config);
+    }
+
+    /**
+     * Removes the Data record with the specified configuration.
+     *
+     * @param config the configuration string of the record to be removed.
+     * @throws DictionaryException if no entry with the specified configuration is found.
+     */
+    @Override
+    public void remove(String config) {
+        int index = find(stringKey(config), config);
+        if (index < 0) throw new DictionaryException();
+        deleteSlot(index);
+    }
+
+    /**
+     * Retrieves the score associated with the specified configuration.
+     *
+     * @param config the configuration string whose score is to be retrieved.
+     * @return the score associated with the configuration, or -1 if it is not found.
+     */
+    @Override
+    public int get(String config) {
+        int index = find(stringKey(config), config);
+        return index < 0 ? -1 : scores[index];
+    }
+
+    /**
+     * Returns the current number of records in the dictionary.
+     *
+     * @return the number of records currently stored.
+     */
+    @Override
+    public int numRecords() {
+        return recordCount;
+    }
+
+    /**
+     * Inserts a key into the table, growing it first if the load factor is exceeded.
+     *
+     * @param key the 64-bit key.
+     * @param score the score to store.
+     * @param config the configuration string, or null for primitive keys.
+     * @return 1 if the key was not placed in its home slot, 0 otherwise.
+     */
+    private int insert(long key, int score, String config) {
+        if (key == EMPTY_KEY && config == null) {
+            if (hasEmptyKey) throw new DictionaryException();
+            hasEmptyKey = true;
+            emptyKeyScore = score;
+            recordCount++;
+            return 0;
+        }
+        if (find(key, config) >= 0) {
+            throw new DictionaryException();
+        }
+        if (recordCount + 1 > (mask + 1) * RESIZE_THRESHOLD) {
+            expandAndRehash();
+        }
+        if (config != null && configs == null) {
+            configs = new String[mask + 1];
+        }
+
+        int home = slotFor(key);
+        int index = home;
+        while (keys[index] != EMPTY_KEY) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        scores[index] = score;
+        if (configs != null) configs[index] = config;
+        recordCount++;
+
+        return index == home ? 0 : 1;
+    }
+
+    /**
+     * Finds the slot holding the given key.
+     *
+     * @param key the 64-bit key.
+     * @param config the configuration string the slot must hold, or null for primitive keys.
+     * @return the slot index, or -1 if the key is not in the table.
+     */
+    private int find(long key, String config) {
+        int index = slotFor(key);
+        long current;
+        while ((current = keys[index]) != EMPTY_KEY) {
+            if (current == key) {
+                String stored = configs == null ? null : configs[index];
+                if (config == null ? stored == null : config.equals(stored)) {
+                    return index;
+                }
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Empties a slot and shifts the following entries of the probe run back so that
+     * no tombstones are needed.
+     *
+     * @param index the slot to empty.
+     */
+    private void deleteSlot(int index) {
+        int free = index;
+        int next = (free + 1) & mask;
+        while (keys[next] != EMPTY_KEY) {
+            int home = slotFor(keys[next]);
+            // Move the entry back if its home slot is not between the free slot and itself
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                scores[free] = scores[next];
+                if (configs != null) configs[free] = configs[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = EMPTY_KEY;
+        if (configs != null) configs[free] = null;
+        recordCount--;
+    }
+
+    /**
+     * Doubles the capacity of the table and reinserts all existing entries.
+     */
+    private void expandAndRehash() {
+        long[] oldKeys = keys;
+        int[] oldScores = scores;
+        String[] oldConfigs = configs;
+
+        int newCapacity = oldKeys.length * 2;
+        keys = new long[newCapacity];
+        scores = new int[newCapacity];
+        configs = oldConfigs == null ? null : new String[newCapacity];
+        mask = newCapacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int index = slotFor(oldKeys[i]);
+                while (keys[index] != EMPTY_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                scores[index] = oldScores[i];
+                if (configs != null) configs[index] = oldConfigs[i];
+            }
+        }
+    }
+
+    /**
+     * Computes the home slot of a key by mixing its bits and masking to the table size.
+     *
+     * @param key the 64-bit key.
+     * @return the home slot of the key.
+     */
+    private int slotFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Hashes a configuration string to a nonzero 64-bit key (FNV-1a).
+     *
+     * @param config the configuration string.
+     * @return the 64-bit key of the string.
+     */
+    private static long stringKey(String config) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < config.length(); i++) {
+            h ^= config.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return h == EMPTY_KEY ? 1L : h;
+    }
+
+    /**
+     * Returns the smallest power of two greater than or equal to the given number.
+     *
+     * @param num the requested capacity.
+     * @return a power of two of at least num.
+     */
+    private static int tableSizeFor(int num) {
+        int capacity = 2;
+        while (capacity < num) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,452 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Monte Carlo Tree Search of the computer's move, for boards too large for
+ * alpha-beta to search deep enough. Each playout walks down a tree of the
+ * moves tried so far, choosing at every node the child with the best UCT
+ * value (mean result plus an exploration bonus for rarely tried moves), then
+ * finishes the game with random moves and counts the result in every node of
+ * its path. The move played most often at the root is returned.
+ *
+ * Several threads grow the same tree (tree parallelism). A thread counts its
+ * visit of a node when it walks down, but only adds the result at the end of
+ * the playout, so in between the node looks like it lost: this virtual loss
+ * sends the other threads down other paths. Every thread plays on its own copy
+ * of the board and takes its moves back after each playout, so the playouts
+ * themselves allocate nothing; only the tree grows.
+ */
+public class MctsSearch {
+    private static final char COMPUTER = 'O';
+    private static final char HUMAN = 'X';
+
+    private static final double EXPLORATION = 1.4;      // Weight of the exploration bonus of UCT
+    private static final long DEFAULT_PLAYOUTS = 20000;  // Budget of a search without any limit
+    private static final long REPORT_NANOS = 100000000L; // Time between two reports to the listener
+
+    private static final AtomicIntegerFieldUpdater<Node> VISITS =
+        AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+    private static final AtomicIntegerFieldUpdater<Node> SCORE =
+        AtomicIntegerFieldUpdater.newUpdater(Node.class, "score");
+
+    private Configurations configs;
+    private final int boardSize;
+    private final ExecutorService helperThreads;
+    private final int threads;
+
+    private volatile boolean stopRequested;  // Set by stop(), possibly from another thread
+    private volatile boolean finished;       // Set once the budget of the current search ran out
+    private final AtomicLong playouts;       // Playouts of the current search, all threads included
+    private long playoutLimit;               // Playouts after which the current search ends, 0 for none
+    private long deadline;                   // System.nanoTime() at which a timed search ends
+    private boolean timed;                   // True if the search ends at the deadline
+    private long elapsedNanos;               // Time taken by the last search
+    private int treeDepth;                   // Deepest level of the tree reached by the last search
+
+    private Consumer<PosPlay> progressListener;  // Told the best play every REPORT_NANOS, or null
+    private BooleanSupplier stopRequest;         // Stop request of the caller of the search, or null
+
+    /**
+     * Node of the search tree: a move and the results of the playouts through it.
+     * The children are created the second time the node is reached, and each
+     * child Node only when it is first tried.
+     */
+    private static final class Node {
+        final int move;         // Square of the move leading to this node, -1 at the root
+        final char mover;       // Player who made the move
+        volatile int visits;    // Playouts through this node, those still running included
+        volatile int score;     // Sum of the results for the mover: 2 per win, 1 per draw
+        volatile int[] moves;   // Moves from this node, null until expanded
+        Node[] children;        // Child of each move, null until it is first tried
+
+        Node(int move, char mover) {
+            this.move = move;
+            this.mover = mover;
+        }
+    }
+
+    /**
+     * Creates a search over the given board.
+     *
+     * @param configs the board to search from; it is not modified.
+     * @param threads the number of threads to search with, the calling thread included.
+     * @throws IllegalArgumentException if threads is less than 1.
+     */
+    public MctsSearch(Configurations configs, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.configs = configs;
+        this.boardSize = configs.getBoardSize();
+        this.threads = threads;
+        this.playouts = new AtomicLong();
+        this.helperThreads = (threads == 1) ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, "mcts-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the computer's move until one of the budgets runs out, or stop()
+     * is called. Without any budget, DEFAULT_PLAYOUTS playouts are run. The
+     * game must not be over.
+     *
+     * @param playoutLimit the number of playouts, or 0 for no limit.
+     * @param timeMillis the time budget in milliseconds, or 0 for none.
+     * @return the move tried most often, with its mean result for the computer
+     *         in thousandths (1000 for a sure win, 500 for an even game); the
+     *         move is (-1, -1) if the search was stopped before any playout.
+     */
+    public PosPlay search(long playoutLimit, long timeMillis) {
+        long start = System.nanoTime();
+        this.playoutLimit = (playoutLimit == 0 && timeMillis == 0) ? DEFAULT_PLAYOUTS : playoutLimit;
+        this.timed = timeMillis > 0;
+        this.deadline = start + timeMillis * 1000000L;
+        stopRequested = false;
+        finished = false;
+        playouts.set(0);
+
+        Node root = new Node(-1, HUMAN);
+        Worker[] workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i + 1);   // Copies the board before any thread plays on it
+        }
+        Future<?>[] running = new Future<?>[threads - 1];
+        for (int i = 1; i < threads; i++) {
+            Worker helper = workers[i];
+            running[i - 1] = helperThreads.submit(() -> helper.run(root, false));
+        }
+        workers[0].run(root, true);
+
+        finished = true;
+        treeDepth = workers[0].maxDepth;
+        for (int i = 1; i < threads; i++) {
+            waitFor(running[i - 1]);
+            treeDepth = Math.max(treeDepth, workers[i].maxDepth);
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return bestPlay(root);
+    }
+
+    /**
+     * Returns the most visited child of the root and its mean result.
+     *
+     * @param root the root of the tree.
+     * @return the best play, or (-1, -1) if no move was tried.
+     */
+    private PosPlay bestPlay(Node root) {
+        Node best = null;
+        synchronized (root) {   // Children created by other threads are seen
+            if (root.children != null) {
+                for (Node child : root.children) {
+                    if (child != null && (best == null || child.visits > best.visits)) best = child;
+                }
+            }
+        }
+        if (best == null || best.visits == 0) return new PosPlay(-1, -1, -1);
+        return new PosPlay((int) (500L * best.score / best.visits), best.move / boardSize, best.move % boardSize);
+    }
+
+    /**
+     * Waits for a helper to stop.
+     *
+     * @param helper the helper's task.
+     */
+    private static void waitFor(Future<?> helper) {
+        try {
+            helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Helper search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Playouts of one thread, on its own copy of the board.
+     */
+    private final class Worker {
+        private final Configurations board;
+        private final int[] moves;     // Moves played on the board since the root, to take back
+        private final Node[] path;     // Nodes walked down by the current playout
+        private final int[] empty;     // Empty squares left during a random playout
+        private long random;           // State of the xorshift generator
+        int maxDepth;                  // Deepest tree level reached
+
+        Worker(long seed) {
+            // A plain copy: the line counts of the evaluators would only slow the playouts down
+            board = Configurations.fromString(boardSize, configs.getLengthToWin(), configs.toString());
+            board.setCandidateRadius(configs.getCandidateRadius());
+            int squares = boardSize * boardSize;
+            moves = new int[squares];
+            path = new Node[squares + 1];
+            empty = new int[squares];
+            random = 0x9E3779B97F4A7C15L * seed;
+        }
+
+        /**
+         * Runs playouts until the search ends.
+         *
+         * @param root the root of the shared tree.
+         * @param main true for the calling thread, which checks the time and
+         *             tells the listener the progress.
+         */
+        void run(Node root, boolean main) {
+            long nextReport = System.nanoTime();
+            while (!stopRequested && !finished) {
+                playout(root);
+                long count = playouts.incrementAndGet();
+                if (playoutLimit > 0 && count >= playoutLimit) finished = true;
+                if (main && (count & 63) == 0) {
+                    if (stopRequest != null && stopRequest.getAsBoolean()) stopRequested = true;
+                    long now = System.nanoTime();
+                    if (timed && now - deadline > 0) finished = true;
+                    if (progressListener != null && now - nextReport >= 0) {
+                        nextReport = now + REPORT_NANOS;
+                        progressListener.accept(bestPlay(root));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Walks down the tree from the root, expands the node reached, plays the
+         * game out at random and counts the result along the path.
+         *
+         * @param root the root of the shared tree.
+         */
+        private void playout(Node root) {
+            Node node = root;
+            int depth = 0;
+            path[0] = root;
+            VISITS.incrementAndGet(root);
+            while (!board.isTerminal()) {
+                int[] nodeMoves = node.moves;
+                if (nodeMoves == null) {
+                    if (node != root && node.visits < 2) break;   // Expanded when reached again
+                    nodeMoves = expand(node);
+                }
+                node = select(node, nodeMoves);
+                VISITS.incrementAndGet(node);   // Virtual loss until the result is added
+                board.savePlay(node.move / boardSize, node.move % boardSize, node.mover);
+                moves[depth++] = node.move;
+                path[depth] = node;
+            }
+            if (depth > maxDepth) maxDepth = depth;
+
+            int result = finish(depth, node.mover == COMPUTER ? HUMAN : COMPUTER);
+            for (int level = 0; level <= depth; level++) {
+                Node visited = path[level];
+                SCORE.addAndGet(visited, visited.mover == COMPUTER ? result : 2 - result);
+                path[level] = null;
+            }
+        }
+
+        /**
+         * Creates the move list of a node, unless another thread did it first.
+         *
+         * @param node the node, whose board is the current one.
+         * @return the moves of the node.
+         */
+        private int[] expand(Node node) {
+            synchronized (node) {
+                if (node.moves == null) {
+                    int count = board.candidateMoves(empty);
+                    int[] nodeMoves = new int[count];
+                    System.arraycopy(empty, 0, nodeMoves, 0, count);
+                    node.children = new Node[count];
+                    node.moves = nodeMoves;
+                }
+                return node.moves;
+            }
+        }
+
+        /**
+         * Chooses the child with the best UCT value, creating it if it was never tried.
+         *
+         * @param node the node to choose a child of.
+         * @param nodeMoves the moves of the node.
+         * @return the child.
+         */
+        private Node select(Node node, int[] nodeMoves) {
+            Node[] children = node.children;
+            double logVisits = Math.log(Math.max(1, node.visits));
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            int untried = -1;
+            for (int k = 0; k < nodeMoves.length; k++) {
+                Node child = children[k];
+                int visits = (child == null) ? 0 : child.visits;
+                if (visits == 0) {
+                    untried = k;
+                    break;
+                }
+                double value = child.score / (2.0 * visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            if (untried < 0) return best;
+
+            synchronized (node) {
+                if (children[untried] == null) {
+                    children[untried] = new Node(nodeMoves[untried], node.mover == COMPUTER ? HUMAN : COMPUTER);
+                }
+                return children[untried];
+            }
+        }
+
+        /**
+         * Plays the game out with random moves, slightly biased towards squares
+         * next to a stone, scores it and takes back every move since the root.
+         *
+         * @param depth the number of moves played on the board since the root.
+         * @param symbol the player to move.
+         * @return the result for the computer: 2 for a win, 1 for a draw, 0 for a loss.
+         */
+        private int finish(int depth, char symbol) {
+            int played = depth;
+            if (!board.isTerminal()) {
+                int count = 0;
+                for (int square = 0; square < boardSize * boardSize; square++) {
+                    if (board.squareIsEmpty(square / boardSize, square % boardSize)) empty[count++] = square;
+                }
+                while (!board.isTerminal()) {
+                    int k = nextInt(count);
+                    for (int tries = 1; tries < 3 && !nextToStone(empty[k]); tries++) k = nextInt(count);
+                    int square = empty[k];
+                    empty[k] = empty[--count];
+                    board.savePlay(square / boardSize, square % boardSize, symbol);
+                    moves[played++] = square;
+                    symbol = (symbol == COMPUTER) ? HUMAN : COMPUTER;
+                }
+            }
+
+            int result = board.wins(COMPUTER) ? 2 : board.wins(HUMAN) ? 0 : 1;
+            while (played > 0) {
+                int square = moves[--played];
+                board.savePlay(square / boardSize, square % boardSize, ' ');
+            }
+            return result;
+        }
+
+        /**
+         * Checks if a square has a stone among its eight neighbours.
+         *
+         * @param square the square.
+         * @return true if a neighbouring square is taken.
+         */
+        private boolean nextToStone(int square) {
+            int row = square / boardSize;
+            int col = square % boardSize;
+            for (int r = Math.max(0, row - 1); r <= Math.min(boardSize - 1, row + 1); r++) {
+                for (int c = Math.max(0, col - 1); c <= Math.min(boardSize - 1, col + 1); c++) {
+                    if (!board.squareIsEmpty(r, c)) return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns a random number from 0 to bound - 1, with an xorshift generator.
+         *
+         * @param bound the number of possible values.
+         * @return the random number.
+         */
+        private int nextInt(int bound) {
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return (int) ((random >>> 33) % bound);
+        }
+    }
+
+    /**
+     * Asks the search to stop as soon as possible. This may be called from any
+     * thread; search then returns the best move found so far.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Sets a stop request the calling thread checks every 64 playouts. Unlike
+     * stop(), whose request search forgets when it starts, the request belongs
+     * to the caller: it is not lost if made before the search starts.
+     *
+     * @param stopRequest returns true once the search has to stop, or null for none.
+     */
+    public void setStopRequest(BooleanSupplier stopRequest) {
+        this.stopRequest = stopRequest;
+    }
+
+    /**
+     * Sets the listener told the best play found so far, about every 100 ms of
+     * search. The listener runs on the searching thread and may call stop().
+     *
+     * @param listener the listener, or null for none.
+     */
+    public void setProgressListener(Consumer<PosPlay> listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Sets the board to search from, for example a copy of the board of the game.
+     *
+     * @param configs the board; it is not modified.
+     */
+    public void setConfigurations(Configurations configs) {
+        this.configs = configs;
+    }
+
+    /**
+     * Returns the number of playouts of the last search, all threads included.
+     *
+     * @return the number of playouts.
+     */
+    public long getPlayouts() {
+        return playouts.get();
+    }
+
+    /**
+     * Returns the number of playouts per second of the last search.
+     *
+     * @return the search speed.
+     */
+    public long getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts.get() * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * Returns the deepest level of the tree reached by the last search.
+     *
+     * @return the depth of the tree.
+     */
+    public int getTreeDepth() {
+        return treeDepth;
+    }
+
+    /**
+     * Checks if the last search was stopped by stop() rather than by its budget.
+     *
+     * @return true if the search was stopped.
+     */
+    public boolean wasStopped() {
+        return stopRequested;
+    }
+
+    /**
+     * Releases the threads used by the search. The search cannot be used anymore afterwards.
+     */
+    public void shutdown() {
+        if (helperThreads != null) helperThreads.shutdownNow();
+    }
+}
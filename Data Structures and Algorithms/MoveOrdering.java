@@ -0,0 +1,23 @@
+/* Move ordering stage of the game tree search. For each ply of the search it fills
+   a buffer with the moves to try at that ply, best first. Moves are square indices
+   (row * boardSize + col).                                                        */
+public interface MoveOrdering {
+
+  /* Fills the move buffer of the given ply with the candidate moves of the board
+     (Configurations.candidateMoves), in the order they should be searched, and
+     returns how many moves were written. ttMove is the best move remembered by the
+     transposition table, or -1 if there is none; it is only tried if it is a
+     candidate.                                                                     */
+  public int orderMoves(Configurations configs, int ply, int ttMove, char symbol);
+
+  /* Returns the move buffer of the given ply, as filled by the last call to orderMoves
+     for that ply.                                                                    */
+  public int[] moveList(int ply);
+
+  /* Records that move caused an alpha/beta cut at the given ply, with depth levels
+     of the tree left below it.                                                      */
+  public void recordCutoff(int ply, int move, char symbol, int depth);
+
+  /* Called at the root of every new search. */
+  public void newSearch();
+}
@@ -0,0 +1,95 @@
+/**
+ * MTD(f) search: the value of the root is found by a series of null window
+ * alpha-beta searches, each of which only tells whether the value is below or
+ * above a test score. Starting from a guess, the score of the previous search,
+ * each search moves a lower or an upper bound of the value until they meet.
+ * The searches revisit the same tree, so they depend on the transposition
+ * table to remember what earlier searches found; with the narrow score range
+ * of the outcome evaluator only a few searches are needed. With the wide range
+ * of the threat evaluator, the bounds often creep towards the value one score
+ * at a time, so the step of the test score doubles while the searches keep
+ * failing on the same side.
+ */
+public class MtdfSearch extends AlphaBetaSearch {
+    private int guess;     // First test score of the next root search
+    private int passes;    // Null window searches made by the last iterativeDeepening or search
+
+    /**
+     * Creates an MTD(f) search over the given board.
+     *
+     * @param configs the board to search from; it is modified during the search.
+     * @param table the transposition table to use.
+     * @param moveOrdering the move ordering to use.
+     * @param evaluator the evaluator of the leaves of the search.
+     */
+    public MtdfSearch(Configurations configs, TranspositionTable table, MoveOrdering moveOrdering,
+                      Evaluator evaluator) {
+        super(configs, table, moveOrdering, evaluator);
+        this.guess = (evaluator.minScore() + evaluator.maxScore()) / 2;
+    }
+
+    @Override
+    protected PosPlay deepen(int maxDepth, long timeMillis) {
+        passes = 0;
+        return super.deepen(maxDepth, timeMillis);
+    }
+
+    @Override
+    public PosPlay search(int maxLevel) {
+        passes = 0;
+        return super.search(maxLevel);
+    }
+
+    /**
+     * Finds the value of the root by null window searches, within (alpha, beta).
+     *
+     * @param alpha the score the computer is already guaranteed.
+     * @param beta the score the human is already guaranteed.
+     * @return the best play and its score; the score is only a bound if it falls
+     *         outside (alpha, beta).
+     */
+    @Override
+    protected PosPlay searchRoot(int alpha, int beta) {
+        int lower = alpha;     // The value is above lower, or at most alpha
+        int upper = beta;      // The value is at most upper, or at least beta
+        int g = Math.min(Math.max(guess, alpha + 1), beta);
+        int bestMove = -1;     // Move of the last search that failed high
+        long last = 0;
+        int test = Math.max(g, lower + 1);
+        int step = 1;
+        boolean first = true;
+        boolean failedHigh = false;
+
+        while (lower < upper) {
+            last = searchNode(COMPUTER, test - 1, test, 0);
+            passes++;
+            if (aborted) return toPlay(playScore(last), playMove(last));
+            g = playScore(last);
+            boolean high = g >= test;
+            if (!first) step = (high == failedHigh) ? 2 * step : 1;
+            first = false;
+            failedHigh = high;
+            if (high) {
+                lower = g;
+                bestMove = playMove(last);   // A fail high proves its move reaches g
+                test = (int) Math.min((long) lower + step, upper);
+            } else {
+                upper = g;
+                test = (int) Math.max((long) upper - step + 1, (long) lower + 1);
+            }
+        }
+        guess = g;
+        if (bestMove < 0) return toPlay(g, playMove(last));   // Every move failed low
+        return toPlay(g, bestMove);
+    }
+
+    /**
+     * Returns the number of null window searches made by the last call to
+     * iterativeDeepening or search.
+     *
+     * @return the number of passes.
+     */
+    public int getPasses() {
+        return passes;
+    }
+}
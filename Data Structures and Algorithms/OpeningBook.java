@@ -0,0 +1,250 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Computer's moves for the first boards of a game, searched deeply offline
+ * and read from a file, so that the opening moves, whose game trees are the
+ * largest, are played at once.
+ *
+ * The book holds every board the human can reach in the first moves of a
+ * game, 'X' moving first as in Play, with the computer answering by the book.
+ * Its moves and scores are those of the evaluator it was searched with, whose
+ * name the file records: a book only covers the games of engines using the
+ * same kind of evaluator.
+ * Boards that are rotations or reflections of each other share one entry,
+ * stored under the canonical key of Configurations with its move on the
+ * canonical board. The file holds a header, then one entry per board (the key,
+ * the move and its score) sorted by key. It is memory-mapped and searched by
+ * bisection, so opening a book costs no heap and no reading of the whole file.
+ */
+public class OpeningBook {
+    private static final int MAGIC = 0x4F424B32;    // "OBK2"
+    private static final int NAME_BYTES = 16;       // Name of the evaluator, padded with zeros
+    private static final int HEADER_BYTES = 20 + NAME_BYTES;   // Magic, board size, length to win, depth,
+                                                               // entry count and evaluator name
+    private static final int ENTRY_BYTES = 16;      // Key, move and score
+
+    private final int boardSize;
+    private final int lengthToWin;
+    private final int depth;
+    private final int entryCount;
+    private final String evaluatorName;
+    private final Class<? extends Evaluator> evaluatorClass;   // Class of the evaluator of that name
+    private final MappedByteBuffer entries;
+
+    /**
+     * Creates a book over a mapped file.
+     *
+     * @param entries the mapped file.
+     * @param evaluatorName the name of the evaluator the book was searched with.
+     */
+    private OpeningBook(MappedByteBuffer entries, String evaluatorName) {
+        this.entries = entries;
+        this.boardSize = entries.getInt(4);
+        this.lengthToWin = entries.getInt(8);
+        this.depth = entries.getInt(12);
+        this.entryCount = entries.getInt(16);
+        this.evaluatorName = evaluatorName;
+        this.evaluatorClass = SearchEngine.createEvaluator(evaluatorName).getClass();
+    }
+
+    /**
+     * Searches the openings of a game and writes the book to a file.
+     *
+     * @param boardSize the size of the board.
+     * @param lengthToWin the length of the sequence needed to win.
+     * @param moves the number of computer moves the book covers.
+     * @param depth the depth every board of the book is searched to.
+     * @param evaluatorName the name of the evaluator of the leaves of the
+     *                      searches, as given to SearchEngine.createEvaluator.
+     * @param file the file to write; it is replaced if it exists.
+     * @return the number of boards in the book.
+     * @throws IOException if the file cannot be written.
+     * @throws IllegalArgumentException if the evaluator name is unknown.
+     */
+    public static int build(int boardSize, int lengthToWin, int moves, int depth, String evaluatorName, Path file)
+            throws IOException {
+        byte[] name = evaluatorName.getBytes(StandardCharsets.US_ASCII);
+        Evaluator evaluator = SearchEngine.createEvaluator(evaluatorName);   // Also checks the name
+        Configurations configs = new Configurations(boardSize, lengthToWin, depth);
+        SearchEngine engine = new SearchEngine(configs, SearchEngine.SEQUENTIAL, 1, evaluator);
+        Map<Long, long[]> book = new TreeMap<>();
+        addReplies(configs, engine, SearchLimits.depth(depth), moves, book, new HashSet<>());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + book.size() * ENTRY_BYTES);
+            buffer.putInt(MAGIC).putInt(boardSize).putInt(lengthToWin).putInt(depth).putInt(book.size());
+            buffer.put(name, 0, Math.min(name.length, NAME_BYTES)).position(HEADER_BYTES);
+            for (Map.Entry<Long, long[]> entry : book.entrySet()) {
+                buffer.putLong(entry.getKey()).putInt((int) entry.getValue()[0]).putInt((int) entry.getValue()[1]);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return book.size();
+    }
+
+    /**
+     * Adds to the book the computer's answer to every move of the human on the
+     * current board, and the boards after it while the book needs more moves.
+     *
+     * @param configs the board, with the human to move.
+     * @param engine the engine searching the board.
+     * @param limits the limits of each search.
+     * @param moves the number of computer moves still to cover.
+     * @param book the entries found so far: the move and score of each canonical key.
+     * @param seen the canonical keys of the boards already visited with the human to move.
+     */
+    private static void addReplies(Configurations configs, SearchEngine engine, SearchLimits limits, int moves,
+                                   Map<Long, long[]> book, Set<Long> seen) {
+        if (!seen.add(configs.getCanonicalKey())) return;
+        int size = configs.getBoardSize();
+        for (int square = 0; square < size * size; square++) {
+            if (!configs.squareIsEmpty(square / size, square % size)) continue;
+            configs.savePlay(square / size, square % size, AlphaBetaSearch.HUMAN);
+            if (!configs.isTerminal() && !book.containsKey(configs.getCanonicalKey())) {
+                SearchResult result = engine.search(limits);
+                int move = result.getRow() * size + result.getCol();
+                book.put(configs.getCanonicalKey(), new long[] {configs.toCanonicalSquare(move), result.getScore()});
+                if (moves > 1) {
+                    configs.savePlay(result.getRow(), result.getCol(), AlphaBetaSearch.COMPUTER);
+                    if (!configs.isTerminal()) addReplies(configs, engine, limits, moves - 1, book, seen);
+                    configs.savePlay(result.getRow(), result.getCol(), ' ');
+                }
+            }
+            configs.savePlay(square / size, square % size, ' ');
+        }
+    }
+
+    /**
+     * Maps a book written by build.
+     *
+     * @param file the file.
+     * @return the book.
+     * @throws IOException if the file cannot be read, is not a book, or was
+     *         built with an evaluator this program does not know.
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC) {
+                throw new IOException("Not an opening book: " + file);
+            }
+            if (map.capacity() < HEADER_BYTES + (long) map.getInt(16) * ENTRY_BYTES) {
+                throw new IOException("Truncated opening book: " + file);
+            }
+            byte[] name = new byte[NAME_BYTES];
+            map.get(20, name);
+            int length = 0;
+            while (length < NAME_BYTES && name[length] != 0) length++;
+            String evaluatorName = new String(name, 0, length, StandardCharsets.US_ASCII);
+            try {
+                return new OpeningBook(map, evaluatorName);   // The mapping outlives the channel
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Opening book of an unknown evaluator: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Checks if the book is about the game of a board, played by an engine
+     * scoring its boards as the book does.
+     *
+     * @param configs the board.
+     * @param evaluator the evaluator of the engine playing the game.
+     * @return true if the board has the size and length to win of the book,
+     *         and the evaluator is of the kind the book was searched with.
+     */
+    public boolean covers(Configurations configs, Evaluator evaluator) {
+        return configs.getBoardSize() == boardSize && configs.getLengthToWin() == lengthToWin
+               && evaluator.getClass() == evaluatorClass;
+    }
+
+    /**
+     * Looks up the computer's move on a board.
+     *
+     * @param configs the board, with the computer to move; the book must cover it.
+     * @return the move and its score on the scale of the evaluator the book was
+     *         built with, or null if the board is not in the book.
+     */
+    public PosPlay lookup(Configurations configs) {
+        long key = configs.getCanonicalKey();
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_BYTES + middle * ENTRY_BYTES;
+            long entryKey = entries.getLong(offset);
+            if (entryKey < key) {
+                low = middle + 1;
+            } else if (entryKey > key) {
+                high = middle - 1;
+            } else {
+                int move = configs.fromCanonicalSquare(entries.getInt(offset + 8));
+                if (!configs.squareIsEmpty(move / boardSize, move % boardSize)) return null;   // Hash collision
+                return new PosPlay(entries.getInt(offset + 12), move / boardSize, move % boardSize);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the depth the boards of the book were searched to.
+     *
+     * @return the search depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the name of the evaluator the boards of the book were searched with.
+     *
+     * @return "outcome" or "threat".
+     */
+    public String getEvaluatorName() {
+        return evaluatorName;
+    }
+
+    /**
+     * Returns the number of boards in the book.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Writes the book of a game, searched with the named evaluator; Play only
+     * uses it with the evaluator of its property play.evaluator, "threat" by default.
+     * To run the builder type: java OpeningBook size length moves depth evaluator file
+     *
+     * @param args the board size, the length to win, the number of computer
+     *             moves, the search depth, the evaluator ("outcome" or
+     *             "threat") and the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 6) {
+            System.out.println("Usage: java OpeningBook board-size length-to-win moves depth evaluator file");
+            System.exit(0);
+        }
+        long start = System.nanoTime();
+        int count = build(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                          Integer.parseInt(args[3]), args[4], Path.of(args[5]));
+        System.out.println(count + " boards in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Evaluator that only tells finished games apart: the scores are those of
+ * Configurations.evalBoard, 3 for a win of the computer, 2 for a draw, 1 for
+ * a game that is not over, and 0 for a win of the human. Every board at the
+ * depth limit of the search scores the same, so only wins and losses within
+ * the searched depth are seen.
+ */
+public class OutcomeEvaluator implements Evaluator {
+
+    @Override
+    public void prepare(Configurations configs) {
+    }
+
+    @Override
+    public int evaluate(Configurations configs) {
+        return configs.evalBoard();
+    }
+
+    @Override
+    public int minScore() {
+        return 0;
+    }
+
+    @Override
+    public int maxScore() {
+        return 3;
+    }
+
+    @Override
+    public int aspirationWindow() {
+        return 1;
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Alpha-beta search that splits the root of the game tree across the threads of
+ * a ForkJoinPool, in the Young Brothers Wait style: the first (eldest) root move
+ * is searched alone to get a bound, then the remaining root moves are searched in
+ * parallel with that bound. Each thread has a search of its own, with its own
+ * copy of the board and its own move ordering, which takes root moves one at a
+ * time until none are left. All threads share one fixed-size transposition table.
+ *
+ * Given a fresh table, the score and move found are the same as those of a
+ * sequential AlphaBetaSearch to the same depth: moves that only tie the best
+ * score lose to the move that comes first in the root move order.
+ */
+public class ParallelSearch extends AlphaBetaSearch {
+    private final ForkJoinPool pool;
+    private final AlphaBetaSearch[] workers;   // Search of each thread, kept from one root search to the next
+
+    /**
+     * Creates a parallel search over the given board, which only tells finished
+     * games apart (see OutcomeEvaluator).
+     *
+     * @param configs the board to search from; it is modified during the search.
+     * @param table the transposition table shared by all threads; it must have a fixed size.
+     * @param threads the number of threads to search with.
+     * @throws IllegalArgumentException if the table can grow, or threads is less than 1.
+     */
+    public ParallelSearch(Configurations configs, TranspositionTable table, int threads) {
+        this(configs, table, threads, new OutcomeEvaluator());
+    }
+
+    /**
+     * Creates a parallel search over the given board.
+     *
+     * @param configs the board to search from; it is modified during the search.
+     * @param table the transposition table shared by all threads; it must have a fixed size.
+     * @param threads the number of threads to search with.
+     * @param evaluator the evaluator of the leaves of the search, shared by all threads.
+     * @throws IllegalArgumentException if the table can grow, or threads is less than 1.
+     */
+    public ParallelSearch(Configurations configs, TranspositionTable table, int threads, Evaluator evaluator) {
+        super(configs, table, new HeuristicMoveOrdering(configs.getBoardSize(), configs.getLengthToWin()), evaluator);
+        if (!table.isFixedSize()) {
+            throw new IllegalArgumentException("A shared transposition table must have a fixed size");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.pool = new ForkJoinPool(threads);
+
+        // The boards are copied again whenever the root changes, the move orderings are kept
+        this.workers = new AlphaBetaSearch[threads];
+        for (int i = 0; i < threads; i++) {
+            MoveOrdering ordering = new HeuristicMoveOrdering(boardSize, configs.getLengthToWin());
+            workers[i] = new AlphaBetaSearch(new Configurations(configs), table, ordering, evaluator);
+            workers[i].stopFlag = stopFlag;
+        }
+    }
+
+    /**
+     * Searches the root: the eldest move alone, then the other moves in parallel.
+     *
+     * @param alpha the score the computer is already guaranteed.
+     * @param beta the score the human is already guaranteed.
+     * @return the best play and its score.
+     */
+    @Override
+    protected PosPlay searchRoot(int alpha, int beta) {
+        int originalAlpha = alpha;
+        checkAbort();
+
+        long entry = configs.probeConfiguration(table);
+        int ttMove = (entry == TranspositionTable.MISS) ? -1 : TranspositionTable.move(entry);
+        int moveCount = moveOrdering.orderMoves(configs, 0, ttMove, COMPUTER);
+        int[] ordered = moveOrdering.moveList(0);
+
+        // Moves equivalent by symmetry to another move are skipped
+        int[] moves = new int[moveCount];
+        int count = 0;
+        for (int k = 0; k < moveCount; k++) {
+            int square = ordered[k];
+            if (!configs.isSymmetricDuplicate(square / boardSize, square % boardSize)) {
+                moves[count++] = square;
+            }
+        }
+
+        // The eldest brother is searched first, by this thread
+        int value = searchMove(COMPUTER, moves[0], alpha, beta, 0);
+        int bestMove = moves[0];
+        if (aborted) return new PosPlay(value, -1, -1);
+        if (value > alpha) alpha = value;
+
+        if (alpha < beta && count > 1) {
+            int[] scores = new int[count];
+            AtomicInteger next = new AtomicInteger(1);
+            RootTask[] tasks = new RootTask[Math.min(workers.length, count - 1)];
+            for (int i = 0; i < tasks.length; i++) {
+                prepareWorker(workers[i]);
+                tasks[i] = new RootTask(workers[i], moves, count, scores, next, alpha, beta);
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+
+            for (RootTask task : tasks) {
+                nodes += task.worker.nodes;
+                if (task.worker.aborted) aborted = true;
+            }
+            if (aborted) return new PosPlay(value, -1, -1);
+
+            // Visit the results in move order, so that ties go to the earlier move
+            for (int k = 1; k < count; k++) {
+                if (scores[k] > value) {
+                    value = scores[k];
+                    bestMove = moves[k];
+                }
+            }
+        }
+
+        storeResult(value, originalAlpha, beta, maxLevel, bestMove);
+        return toPlay(value, bestMove);
+    }
+
+    /**
+     * Shuts down the threads of the search.
+     */
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Readies the search of a thread for the current root search. Its board is
+     * only copied again if the root has changed since its last search, which
+     * also starts a new search for its move ordering. This runs on the thread
+     * that owns the board, before any task starts.
+     *
+     * @param worker the search of a thread.
+     */
+    private void prepareWorker(AlphaBetaSearch worker) {
+        if (worker.configs.getHashKey() != configs.getHashKey()) {
+            worker.configs = new Configurations(configs);
+            worker.moveOrdering.newSearch();
+        }
+        worker.maxLevel = maxLevel;
+        worker.timed = timed;
+        worker.deadline = deadline;
+        worker.stopRequest = stopRequest;
+        worker.nodes = 0;
+        worker.aborted = false;
+    }
+
+    /**
+     * Search of root moves by the search of one thread: the task takes the next
+     * move not yet taken by any task, until none are left or the search is aborted.
+     */
+    private class RootTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final AlphaBetaSearch worker;
+        private final int[] moves;
+        private final int count;
+        private final int[] scores;     // Score of each move, filled in by the task that searched it
+        private final AtomicInteger next;
+        private final int alpha;
+        private final int beta;
+
+        RootTask(AlphaBetaSearch worker, int[] moves, int count, int[] scores, AtomicInteger next, int alpha, int beta) {
+            this.worker = worker;
+            this.moves = moves;
+            this.count = count;
+            this.scores = scores;
+            this.next = next;
+            this.alpha = alpha;
+            this.beta = beta;
+        }
+
+        @Override
+        protected void compute() {
+            int k;
+            while ((k = next.getAndIncrement()) < count) {
+                scores[k] = worker.searchMove(COMPUTER, moves[k], alpha, beta, 0);
+                if (worker.aborted) return;
+            }
+        }
+    }
+}
@@ -4,11 +4,18 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 
 public class Play extends JFrame {
      private static final long serialVersionUID = 1L;
@@ -18,14 +25,32 @@ public class Play extends JFrame {
      private JButton [][] gameDisplay;/* Game board */
      private Configurations configs;       
      private int board_size;    /* Size of game board */
-     private int max_level;     /* Maximum level of the game tree that
-                                   will be explored                    */
-     private HashDictionary configurations;
+     private SearchLimits limits;  /* Depth and time of each computer move */
+     private SearchEngine engine;  /* Chooses the computer's plays */
+     private SearchTask thinking;  /* Search of the computer's play, null
+                                      while it is the human's turn       */
+     private boolean pondering;    /* Search the human's expected reply while
+                                      the human thinks                    */
 
 
     /* Constructor. Creates a panel to represent the game board and destroys
        the panel when its window is closed.                                 */
     public Play(int size, int to_win, int depth)
+    {
+        this(size,to_win,depth,0,1,"root");
+    }
+
+    /* Constructor with a time budget in milliseconds for each computer move
+       and a number of search threads. The computer searches deeper and deeper,
+       up to the given depth, until the budget runs out. With more than one
+       thread, mode chooses how the threads share the work: "root" splits the
+       root of the game tree between them, "smp" has all of them search the
+       whole tree and share their results through the transposition table.
+       Modes "pvs" and "mtdf" run a principal variation search or an MTD(f)
+       search on a single thread. Mode "mcts" plays random games out on all
+       the threads instead of searching to a depth, for large boards; with
+       no time budget it runs a fixed number of playouts.                  */
+    public Play(int size, int to_win, int depth, long time_ms, int threads, String mode)
     {
         Container c = getContentPane();
 	c.setLayout(new GridLayout(size,size));  
@@ -33,6 +58,20 @@ public class Play extends JFrame {
 	Icon emptySquare = new ImageIcon("empty.gif");
 	ClickHandler handler = new ClickHandler(size);
 
+	/* "Move now" makes the computer play the best move found so far. Its
+	   key is read from the property play.moveNowKey, "control M" by default */
+	JMenuBar menuBar = new JMenuBar();
+	JMenu gameMenu = new JMenu("Game");
+	JMenuItem moveNow = new JMenuItem("Move now");
+	moveNow.setAccelerator(KeyStroke.getKeyStroke(System.getProperty("play.moveNowKey","control M")));
+	moveNow.addActionListener(event -> { if (thinking != null) thinking.moveNow(); });
+	gameMenu.add(moveNow);
+	menuBar.add(gameMenu);
+	setJMenuBar(menuBar);
+
+	/* Pondering is turned on with the property play.ponder=true */
+	pondering = Boolean.getBoolean("play.ponder");
+
 	/* Board is represented as a grid of clickable buttons */
         for(int i = 0; i < size; i++)
            for(int j = 0; j < size; j++) {
@@ -43,22 +82,56 @@ public class Play extends JFrame {
            }
                
 	board_size = size;
-	max_level = depth;
+	limits = new SearchLimits(depth,0,time_ms);
     configs = new Configurations(size,to_win,depth); /* User code needed to play */
+    /* On large boards only squares near the stones are searched; the distance
+       is read from the property play.candidateRadius */
+    configs.setCandidateRadius(Integer.getInteger("play.candidateRadius", size >= 10 ? 2 : 0));
+    /* Boards at the depth limit are scored by their open lines ("threat"),
+       unless the property play.evaluator is "outcome" */
+    engine = new SearchEngine(configs,SearchEngine.parseMode(mode),threads,
+                              SearchEngine.createEvaluator(System.getProperty("play.evaluator","threat")));
+    /* Small boards solved offline by SolvedDatabase are played from the file
+       named by the property play.database, solved-size-length.db by default,
+       when it exists                                                       */
+    File solved = new File(System.getProperty("play.database","solved-"+size+"-"+to_win+".db"));
+    if (solved.exists()) {
+        try {
+            engine.setSolvedDatabase(SolvedDatabase.open(solved.toPath()));
+        }
+        catch (IOException e) {
+            System.out.println("Cannot read " + solved + ": " + e.getMessage());
+        }
+    }
+    /* The first moves are read from the opening book built by OpeningBook,
+       in the file named by the property play.book, book-size-length.bin by
+       default, when it exists and was built with the same evaluator        */
+    File opening = new File(System.getProperty("play.book","book-"+size+"-"+to_win+".bin"));
+    if (opening.exists()) {
+        try {
+            engine.setOpeningBook(OpeningBook.open(opening.toPath()));
+        }
+        catch (IOException e) {
+            System.out.println("Cannot read " + opening + ": " + e.getMessage());
+        }
+    }
     }
 
     
-    /* To run the program type: java Play size length depth where 
+    /* To run the program type: java Play size length depth [time [threads [mode]]] where 
        size is the size of the board, length is the length of the X-shape of +shape
        needed to win the game, and depth is the number of levels of the game tree
-       to be explored.                   */
+       to be explored. If time is given, each computer move is searched for at
+       most that many milliseconds (0 for no limit), possibly stopping before
+       depth is reached. threads is the number of search threads, 1 by default,
+       and mode is "root" (the default), "smp", "pvs", "mtdf" or "mcts".     */
     public static void main(String [] args)
     {
 
         /* Check that the number of arguments is the correct one */
-	if (args.length != 3) {
+	if (args.length < 3 || args.length > 6) {
 	    System.out.println
-		("Usage: java Play board-size shape-length depth");
+		("Usage: java Play board-size shape-length depth [time-ms [threads [root|smp|pvs|mtdf|mcts]]]");
 	    System.exit(0);
 	}
 //	String[] args2 = {"5", "5", "4"};
@@ -70,9 +143,12 @@ public class Play extends JFrame {
 	   column, or diagonal, required to win */
 	int adjacent_to_win = Integer.parseInt(args[1]);
 	int depth = Integer.parseInt(args[2]);
+	long time_ms = (args.length >= 4) ? Long.parseLong(args[3]) : 0;
+	int threads = (args.length >= 5) ? Integer.parseInt(args[4]) : 1;
+	String mode = (args.length == 6) ? args[5] : "root";
 
 	/* Create the game board and start the game */
-        JFrame f = new Play(size,adjacent_to_win,depth);
+        JFrame f = new Play(size,adjacent_to_win,depth,time_ms,threads,mode);
 
         f.setSize(size*100,size*100);
         f.setVisible(true);
@@ -88,7 +164,7 @@ public class Play extends JFrame {
     /* Panel to represent the game board. It contaias methods for detecting
        the play selected by the human player.                           */
 
-    private class ClickHandler implements ActionListener {
+    private class ClickHandler implements ActionListener, SearchListener {
 	private int board_size;
 	private boolean game_ended = false;
 
@@ -102,7 +178,6 @@ public class Play extends JFrame {
         public void actionPerformed(ActionEvent event) {
             if(event.getSource() instanceof JButton) { /* Some position of the board was selected */
 		int row = -1, col = -1;
-		PosPlay pos;
 
 		if (game_ended) System.exit(0);
 		/* Find out which position was selected by the player */
@@ -116,23 +191,20 @@ public class Play extends JFrame {
 		    if (row != -1) break;
 		}
 
-		if (configs.squareIsEmpty(row,col)) {
+		if (thinking != null) System.out.println("Wait for the computer's play");
+		else if (configs.squareIsEmpty(row,col)) {
 		    /* Valid play, mark it on the board */
                     gameDisplay[row][col].setIcon(
                          new ImageIcon("human.gif"));
-		    gameDisplay[row][col].paint(gameDisplay[row][col].getGraphics());
 
 		    configs.savePlay(row,col,HUMAN);
 		    if (configs.wins(HUMAN)) endGame("Human wins"); 
 		    else {
 			if (configs.isDraw()) endGame("Game is a draw"); 
 			else {
-			    pos = computerPlay(COMPUTER,-1,4,0);
- 			    configs.savePlay(pos.getRow(),pos.getCol(),COMPUTER);
-			    gameDisplay[pos.getRow()][pos.getCol()].setIcon(
-						new ImageIcon("computer.gif"));
-			    if (configs.wins(COMPUTER)) endGame("Computer wins");
-			    else if (configs.isDraw()) endGame("Game is a draw");
+			    /* The computer's play is searched in the background, and
+			       made by done() on the event dispatch thread */
+			    thinking = engine.searchAsync(limits,this,SwingUtilities::invokeLater);
 			}
 		    }
 		}
@@ -142,70 +214,23 @@ public class Play extends JFrame {
         }
 
 
-	/* Explore the game tree and choose the best move for the computer */
-	private PosPlay computerPlay(char symbol, int highest_score, 
-                                     int lowest_score, int level) {
-
-	char opponent;           // Opponent's symbol
-        PosPlay reply;           // Opponent's best reply
- 
-        int bestRow = -1;
-        int bestColumn = -1;     // Position of best play
-
-        int value;
-	int lookupVal;
-
-	if (level == 0)   /* Create new hash table */
-	    configurations = configs.createDictionary();    
-
-        if( symbol == COMPUTER ) {
-            opponent = HUMAN; value = -1;
-        }
-        else {
-            opponent = COMPUTER; value = 4;
-        }
-
-        for(int row = 0; row < board_size; row++)
-            for(int column = 0; column < board_size; column++) {
-                if(configs.squareIsEmpty(row,column)) {     // Empty position
-                    configs.savePlay(row,column,symbol);   // Store next play
-		    if (configs.wins(symbol)||configs.isDraw()||(level >= max_level))
-                        // Game ending situation or max number of levels reached 
-			reply = new PosPlay(configs.evalBoard(),row,column);
-		    else {
-			lookupVal = configs.repeatedConfiguration(configurations);
-			if (lookupVal != -1) 
-			    reply = new PosPlay(lookupVal,row,column);
-			else {
-			    reply = computerPlay(opponent, highest_score, 
-                                         lowest_score, level + 1);
-			    if (configs.repeatedConfiguration(configurations) == -1)
-			        configs.addConfiguration(configurations,reply.getScore());
-			}
-		    }
-		    configs.savePlay(row,column,' ');
-                    
-		    if((symbol == COMPUTER && reply.getScore() > value) ||
-		       (symbol == HUMAN && reply.getScore() < value)) {
-			 bestRow = row; 
-			 bestColumn = column;
-			 value = reply.getScore();
-
-			 /* Alpha/beta cut */
-			 if (symbol == COMPUTER && value > highest_score) 
-			     highest_score = value;
-			 else if (symbol == HUMAN && value < lowest_score) 
-			     lowest_score = value;
-
-			 if (highest_score >= lowest_score) 
-			     return new PosPlay(value, bestRow, bestColumn);
-		    }
-		    
-		}
-	    }
-         return new PosPlay(value, bestRow, bestColumn);
-        }
+	/* Shows the best play found so far by the computer's search */
+	public void progress(SearchResult partial) {
+	    setTitle("Depth " + partial.getDepth() + ": " + partial.getRow() + "," + partial.getCol());
+	}
 
+	/* Makes the computer's play once its search is over */
+	public void done(SearchResult result) {
+	    PosPlay pos = result.getPlay();
+	    thinking = null;
+	    setTitle("");
+	    configs.savePlay(pos.getRow(),pos.getCol(),COMPUTER);
+	    gameDisplay[pos.getRow()][pos.getCol()].setIcon(
+				new ImageIcon("computer.gif"));
+	    if (configs.wins(COMPUTER)) endGame("Computer wins");
+	    else if (configs.isDraw()) endGame("Game is a draw");
+	    else if (pondering) engine.startPondering(limits);
+	}
 
 	/* Prompt the user for a key to terminate the game */
 	private void endGame(String mssg) {
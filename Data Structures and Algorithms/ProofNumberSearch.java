@@ -0,0 +1,320 @@
+import java.util.Arrays;
+
+/**
+ * Solver deciding whether a board is won, lost or drawn with perfect play, by
+ * depth-first proof-number search (df-pn). For the player trying to win (the
+ * attacker), the proof number of a board is the least number of leaves that
+ * must still be shown to be won to prove a win, and the disproof number the
+ * least number that must be shown not to be won to refute it. The search
+ * always expands the most proving board, and only backs up to its parent when
+ * the parent's best child changes, so the board is searched depth first.
+ *
+ * One proof tells a win from the rest: a win for the player to move is proved,
+ * otherwise a win for the opponent; when both fail the game is a draw. Unlike
+ * the depth-limited searches, every empty square is tried, since a proof that
+ * skips a defending move proves nothing.
+ *
+ * The proof and disproof numbers are kept in a table of fixed size, whose
+ * entries hold the amount of work spent on them; when two boards compete for a
+ * slot, the cheaper one to search again is given up. A table too small for the
+ * proof makes the search expand the same boards over and over: once a board
+ * has had the numbers of its children lost more often than it has children,
+ * solve gives up and returns UNKNOWN, even without a node budget. The empty
+ * 3x3 board is solved with a table of 5120 bytes or more (in 554 nodes, 615
+ * with 10240 bytes), and given up with 2560 bytes or less.
+ */
+public class ProofNumberSearch {
+    /** Result of solve: the player to move wins. */
+    public static final int WIN = 1;
+    /** Result of solve: the player to move loses. */
+    public static final int LOSS = 2;
+    /** Result of solve: neither player can force a win. */
+    public static final int DRAW = 3;
+    /** Result of solve: the node budget ran out, or the table was too small, before the board was decided. */
+    public static final int UNKNOWN = 4;
+
+    /** Number of bytes used by one slot of the table. */
+    public static final int BYTES_PER_SLOT = 20;
+
+    private static final int INFINITY = 1 << 30;   // Proof number of a disproved board
+    private static final long KEY_MASK = 0x2545F4914F6CDD1DL;   // Keeps the empty board, of hash 0, from looking like a free slot
+
+    private final Configurations configs;
+    private final int boardSize;
+    private final int[][] moves;   // Move buffer of each ply
+    private final boolean[][] tried;   // Squares already searched from the board of each ply
+
+    private final long[] keys;     // Key of each slot, 0 for a free slot
+    private final long[] numbers;  // Proof number in the high half, disproof number in the low half
+    private final int[] work;      // Nodes spent on the board of each slot
+    private final int mask;        // Slot count - 1; slots come in pairs sharing a bucket
+
+    private char attacker;         // Player whose win the current proof is about
+    private long nodes;            // Nodes searched by the last call to solve
+    private long nodeBudget;       // Nodes after which solve gives up, 0 for none
+    private boolean aborted;       // True once the budget ran out, or the table was found too small
+    private int bestMove;          // Move proving the result of the last call to solve, or -1
+
+    /**
+     * Creates a solver for the given board.
+     *
+     * @param configs the board to solve; it is modified during the search, and restored.
+     * @param tableBytes the memory budget of the table of proof numbers.
+     * @throws IllegalArgumentException if the budget is smaller than two slots.
+     */
+    public ProofNumberSearch(Configurations configs, long tableBytes) {
+        long slots = Long.highestOneBit(tableBytes / BYTES_PER_SLOT);
+        if (slots < 2) {
+            throw new IllegalArgumentException("Table budget too small: " + tableBytes + " bytes");
+        }
+        slots = Math.min(slots, 1 << 30);
+        this.configs = configs;
+        this.boardSize = configs.getBoardSize();
+        this.keys = new long[(int) slots];
+        this.numbers = new long[(int) slots];
+        this.work = new int[(int) slots];
+        this.mask = (int) slots - 1;
+        int squares = boardSize * boardSize;
+        this.moves = new int[squares + 1][squares];
+        this.tried = new boolean[squares + 1][squares];
+    }
+
+    /**
+     * Decides the outcome of the board for the player to move.
+     *
+     * @param symbol the symbol of the player to move ('X' or 'O'); the game must not be over.
+     * @param nodeBudget the number of nodes to search at most, or 0 for no limit.
+     * @return WIN, LOSS, DRAW, or UNKNOWN if the budget ran out or the table is
+     *         too small for the proof.
+     */
+    public int solve(char symbol, long nodeBudget) {
+        char opponent = (symbol == 'O') ? 'X' : 'O';
+        this.nodeBudget = nodeBudget;
+        nodes = 0;
+        aborted = false;
+        bestMove = -1;
+
+        if (prove(symbol, symbol)) {
+            bestMove = pickMove(symbol, true);
+            return WIN;
+        }
+        if (aborted) return UNKNOWN;
+        if (prove(opponent, symbol)) {
+            bestMove = pickMove(symbol, false);   // Every move loses
+            return LOSS;
+        }
+        if (aborted) return UNKNOWN;
+        bestMove = pickMove(symbol, true);        // A move after which the opponent cannot win
+        return DRAW;
+    }
+
+    /**
+     * Runs one proof from the current board.
+     *
+     * @param winner the player whose win is to be proved.
+     * @param symbol the player to move.
+     * @return true if the win was proved, false if it was disproved or the budget ran out.
+     */
+    private boolean prove(char winner, char symbol) {
+        attacker = winner;
+        Arrays.fill(keys, 0L);   // Proof numbers only hold for one attacker
+        search(symbol, INFINITY - 1, INFINITY - 1, 0);
+        long entry = lookup(boardKey());
+        int phi = (int) (entry >>> 32);
+        return !aborted && (symbol == winner ? phi : (int) entry) == 0;
+    }
+
+    /**
+     * Searches the current board until its numbers reach one of the thresholds,
+     * in the phi/delta form: phi is the proof number of the board for the player
+     * to move reaching their goal (a win for the attacker, anything else for the
+     * defender) and delta its disproof number. The phi of a board is the least
+     * delta of its children, and its delta the sum of their phi.
+     *
+     * @param symbol the player to move.
+     * @param phiLimit the threshold of phi.
+     * @param deltaLimit the threshold of delta.
+     * @param level the level of the board below the root of the proof.
+     */
+    private void search(char symbol, int phiLimit, int deltaLimit, int level) {
+        long key = boardKey();
+        long startNodes = ++nodes;
+        if (nodeBudget > 0 && nodes > nodeBudget) {
+            aborted = true;
+            return;
+        }
+
+        char opponent = (symbol == 'O') ? 'X' : 'O';
+        int[] list = moves[level];
+        boolean[] searched = tried[level];
+        int count = 0;
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            if (configs.squareIsEmpty(square / boardSize, square % boardSize)) list[count++] = square;
+            searched[square] = false;
+        }
+
+        int phi = 0;
+        int delta = 0;
+        int lost = 0;   // Children searched again because the table gave up their numbers
+        while (true) {
+            // The numbers of the board, and its most proving child with the runner-up's delta
+            int best = -1;
+            int bestPhi = 0;
+            int bestDelta = INFINITY;
+            int secondDelta = INFINITY;
+            int sumPhi = 0;
+            for (int k = 0; k < count; k++) {
+                long child = childNumbers(list[k], symbol, opponent);
+                int childPhi = (int) (child >>> 32);
+                int childDelta = (int) child;
+                sumPhi = (int) Math.min(INFINITY, (long) sumPhi + childPhi);
+                if (childDelta < bestDelta) {
+                    secondDelta = bestDelta;
+                    bestDelta = childDelta;
+                    bestPhi = childPhi;
+                    best = list[k];
+                } else if (childDelta < secondDelta) {
+                    secondDelta = childDelta;
+                }
+            }
+            phi = bestDelta;
+            delta = sumPhi;
+            if (phi >= phiLimit || delta >= deltaLimit || aborted) break;
+
+            // The child is searched until it stops being the most proving, or the board's delta passes its limit
+            int childPhiLimit = (int) Math.min(INFINITY, (long) deltaLimit - delta + bestPhi);
+            int childDeltaLimit = Math.min(phiLimit, secondDelta == INFINITY ? INFINITY : secondDelta + 1);
+            configs.savePlay(best / boardSize, best % boardSize, symbol);
+            if (searched[best] && !isStored(boardKey()) && ++lost > count) {
+                aborted = true;   // The table is too small: the search would go round in circles
+            } else {
+                searched[best] = true;
+                search(opponent, childPhiLimit, childDeltaLimit, level + 1);
+            }
+            configs.savePlay(best / boardSize, best % boardSize, ' ');
+        }
+        if (!aborted) store(key, phi, delta, nodes - startNodes + 1);
+    }
+
+    /**
+     * Returns the numbers of the board after a move, from the point of view of
+     * the player who is then to move.
+     *
+     * @param square the square of the move.
+     * @param symbol the player making the move.
+     * @param opponent the player to move after it.
+     * @return phi in the high half and delta in the low half.
+     */
+    private long childNumbers(int square, char symbol, char opponent) {
+        int row = square / boardSize;
+        int col = square % boardSize;
+        long result;
+        configs.savePlay(row, col, symbol);
+        if (configs.isTerminal()) {
+            // The opponent reached their goal if the attacker did not win, or the defender did not lose
+            boolean attackerWon = configs.wins(attacker);
+            boolean goalReached = (opponent == attacker) == attackerWon;
+            result = goalReached ? pack(0, INFINITY) : pack(INFINITY, 0);
+        } else {
+            result = lookup(boardKey());
+        }
+        configs.savePlay(row, col, ' ');
+        return result;
+    }
+
+    /**
+     * Chooses the move to play at the root after a proof, from the numbers the
+     * proof left in the table.
+     *
+     * @param symbol the player to move.
+     * @param proven true for a move that reaches the player's goal of the last
+     *               proof, false for any move.
+     * @return the square of the move, or -1 if the table lost the numbers.
+     */
+    private int pickMove(char symbol, boolean proven) {
+        char opponent = (symbol == 'O') ? 'X' : 'O';
+        for (int square = 0; square < boardSize * boardSize; square++) {
+            if (!configs.squareIsEmpty(square / boardSize, square % boardSize)) continue;
+            if (!proven || (int) childNumbers(square, symbol, opponent) == 0) return square;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the numbers stored for a board, or those of an unsearched board.
+     *
+     * @param key the key of the board.
+     * @return phi in the high half and delta in the low half.
+     */
+    private long lookup(long key) {
+        int slot = (int) key & mask & ~1;
+        if (keys[slot] == key) return numbers[slot];
+        if (keys[slot + 1] == key) return numbers[slot + 1];
+        return pack(1, 1);
+    }
+
+    /**
+     * Checks if the table holds the numbers of a board.
+     *
+     * @param key the key of the board.
+     * @return true if one of the slots of its bucket holds the board.
+     */
+    private boolean isStored(long key) {
+        int slot = (int) key & mask & ~1;
+        return keys[slot] == key || keys[slot + 1] == key;
+    }
+
+    /**
+     * Stores the numbers of a board, in the slot of its bucket that already
+     * holds it, or else in the one that cost less work.
+     *
+     * @param key the key of the board.
+     * @param phi the proof number for the player to move.
+     * @param delta the disproof number for the player to move.
+     * @param spent the nodes spent on the board.
+     */
+    private void store(long key, int phi, int delta, long spent) {
+        int slot = (int) key & mask & ~1;
+        if (keys[slot + 1] == key || (keys[slot] != key && keys[slot] != 0
+                                      && (keys[slot + 1] == 0 || work[slot + 1] < work[slot]))) {
+            slot++;
+        }
+        if (keys[slot] == key) spent += work[slot];
+        keys[slot] = key;
+        numbers[slot] = pack(phi, delta);
+        work[slot] = (int) Math.min(spent, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the key of the current board in the table, the same for all of
+     * its rotations and reflections.
+     *
+     * @return the key of the board.
+     */
+    private long boardKey() {
+        return configs.getCanonicalKey() ^ KEY_MASK;
+    }
+
+    private static long pack(int phi, int delta) {
+        return ((long) phi << 32) | delta;
+    }
+
+    /**
+     * Returns the move proving the result of the last call to solve: a winning
+     * move, a drawing move, or any move of a lost board.
+     *
+     * @return the square (row * boardSize + col) of the move, or -1 if unknown.
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns the number of nodes searched by the last call to solve.
+     *
+     * @return the number of nodes.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Principal Variation Search: a negamax formulation of alpha-beta in which
+ * every node is searched from the point of view of the player to move, so the
+ * computer's and the human's nodes share one code path. The first move of a
+ * node is searched with the full window; the others are searched with a null
+ * window (alpha, alpha + 1), which only tells whether they beat the first
+ * move, and are searched again with the full window when they do. With good
+ * move ordering the first move is usually best and the null window searches
+ * cut far more of the tree.
+ *
+ * The transposition table and the root scores stay on the computer's scale
+ * of the Evaluator, as in AlphaBetaSearch, so both searches can share a table.
+ */
+public class PvsSearch extends AlphaBetaSearch {
+    private int rootMove;   // Best move found at the root by the last call to pvs
+
+    /**
+     * Creates a principal variation search over the given board.
+     *
+     * @param configs the board to search from; it is modified during the search.
+     * @param table the transposition table to use.
+     * @param moveOrdering the move ordering to use.
+     * @param evaluator the evaluator of the leaves of the search.
+     */
+    public PvsSearch(Configurations configs, TranspositionTable table, MoveOrdering moveOrdering,
+                     Evaluator evaluator) {
+        super(configs, table, moveOrdering, evaluator);
+    }
+
+    @Override
+    protected PosPlay searchRoot(int alpha, int beta) {
+        int value = pvs(COMPUTER, alpha, beta, 0);
+        return toPlay(value, aborted ? -1 : rootMove);
+    }
+
+    /**
+     * Searches the board below the current one for the player to move.
+     *
+     * @param symbol the symbol of the player to move.
+     * @param alpha the score the player to move is already guaranteed, on its own scale.
+     * @param beta the score the opponent is already guaranteed, on the mover's scale.
+     * @param level the level of the current board in the game tree, 0 at the root.
+     * @return the score of the board for the player to move (the negated computer
+     *         score for the human); only a bound if it falls outside (alpha, beta).
+     */
+    private int pvs(char symbol, int alpha, int beta, int level) {
+        char opponent = (symbol == COMPUTER) ? HUMAN : COMPUTER;
+        int sign = (symbol == COMPUTER) ? 1 : -1;
+        int best = (symbol == COMPUTER) ? minBound : -maxBound;
+        int bestMove = -1;
+        int ttMove = -1;
+        int depth = maxLevel - level;
+        int originalAlpha = alpha;
+        int originalBeta = beta;
+
+        if (checkAbort()) {
+            return best;   // Discarded by the callers
+        }
+
+        long entry = configs.probeConfiguration(table);
+        if (entry != TranspositionTable.MISS) {
+            ttMove = TranspositionTable.move(entry);
+            if (level > 0 && TranspositionTable.depth(entry) >= depth) {
+                // The table holds computer scores; for the human both the score
+                // and the direction of a bound are reversed
+                int score = sign * TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (sign < 0 && bound != TranspositionTable.EXACT) {
+                    bound = (bound == TranspositionTable.LOWER_BOUND) ? TranspositionTable.UPPER_BOUND
+                                                                    : TranspositionTable.LOWER_BOUND;
+                }
+                if (bound == TranspositionTable.EXACT) return score;
+                if (bound == TranspositionTable.LOWER_BOUND && score > alpha) alpha = score;
+                else if (bound == TranspositionTable.UPPER_BOUND && score < beta) beta = score;
+                if (alpha >= beta) return score;
+            }
+        }
+
+        int moveCount = moveOrdering.orderMoves(configs, level, ttMove, symbol);
+        int[] moves = moveOrdering.moveList(level);
+        boolean first = true;
+        for (int k = 0; k < moveCount; k++) {
+            int square = moves[k];
+            int row = square / boardSize;
+            int col = square % boardSize;
+            if (level == 0 && configs.isSymmetricDuplicate(row, col)) continue;
+
+            int score;
+            configs.savePlay(row, col, symbol);
+            if (configs.isTerminal() || level >= maxLevel) {
+                score = sign * evaluator.evaluate(configs);
+            } else if (first) {
+                score = -pvs(opponent, -beta, -alpha, level + 1);
+            } else {
+                score = -pvs(opponent, -alpha - 1, -alpha, level + 1);
+                if (score > alpha && score < beta && !aborted) {
+                    score = -pvs(opponent, -beta, -alpha, level + 1);   // Beat the first move: re-search
+                }
+            }
+            configs.savePlay(row, col, ' ');
+            if (aborted) return best;
+            first = false;
+
+            if (score > best) {
+                best = score;
+                bestMove = square;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        moveOrdering.recordCutoff(level, square, symbol, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Back to the computer's scale, where the human's window is (-beta, -alpha)
+        if (sign > 0) storeResult(best, originalAlpha, originalBeta, depth, bestMove);
+        else storeResult(-best, -originalBeta, -originalAlpha, depth, bestMove);
+        if (level == 0) rootMove = bestMove;
+        return best;
+    }
+}
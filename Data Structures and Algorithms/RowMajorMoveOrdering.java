@@ -0,0 +1,45 @@
+/**
+ * Move ordering that tries the remembered best move first and then every
+ * candidate square in row-major order. This is the order the search used before
+ * move ordering was added, and is kept for comparison.
+ */
+public class RowMajorMoveOrdering implements MoveOrdering {
+    private final int[][] moves; // Move buffer of each ply
+
+    /**
+     * Creates the move buffers for a boardSize x boardSize board.
+     *
+     * @param boardSize the size of the board.
+     */
+    public RowMajorMoveOrdering(int boardSize) {
+        int squares = boardSize * boardSize;
+        this.moves = new int[squares + 1][squares];
+    }
+
+    @Override
+    public int orderMoves(Configurations configs, int ply, int ttMove, char symbol) {
+        int[] list = moves[ply];
+        int count = configs.candidateMoves(list);
+        for (int i = 0; i < count; i++) {
+            if (list[i] == ttMove) {
+                System.arraycopy(list, 0, list, 1, i);
+                list[0] = ttMove;
+                break;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int[] moveList(int ply) {
+        return moves[ply];
+    }
+
+    @Override
+    public void recordCutoff(int ply, int move, char symbol, int depth) {
+    }
+
+    @Override
+    public void newSearch() {
+    }
+}
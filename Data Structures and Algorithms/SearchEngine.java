@@ -0,0 +1,488 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Headless engine choosing the computer's moves on a board, independent of any
+ * user interface. The engine searches the Configurations it is given, within
+ * SearchLimits, and returns the best move found with statistics on the search.
+ * The caller makes the moves on the board, for both players, between searches.
+ *
+ * The transposition table and move ordering are kept from one search to the
+ * next, so an engine serves one game at a time; independent games use
+ * independent engines. Searches can also run in the background, one at a
+ * time, on a thread of the engine; the board must not be used by other threads
+ * until such a search is done.
+ *
+ * In MCTS mode the engine runs an MctsSearch instead of alpha-beta: the node
+ * limit counts playouts, the depth limit is ignored, the score is the mean
+ * result of the move in thousandths and the depth is that of the search tree.
+ * Such an engine does not ponder, since it keeps no transposition table moves.
+ *
+ * Boards of a game solved by a SolvedDatabase given to setSolvedDatabase, and
+ * boards of an OpeningBook given to setOpeningBook, are not searched at all:
+ * the move is read from the database or the book.
+ */
+public class SearchEngine {
+    public static final int SEQUENTIAL = 1;  // Alpha-beta search on the calling thread
+    public static final int ROOT_SPLIT = 2;  // Root moves searched in parallel (ParallelSearch)
+    public static final int LAZY_SMP = 3;    // Whole tree searched by all threads (LazySmpSearch)
+    public static final int PVS = 4;         // Principal variation search on the calling thread (PvsSearch)
+    public static final int MTDF = 5;        // Null window searches converging on the value (MtdfSearch)
+    public static final int MCTS = 6;        // Monte Carlo Tree Search with parallel playouts (MctsSearch)
+
+    private final Configurations configs;
+    private final TranspositionTable table;
+    private final AlphaBetaSearch searcher;
+    private final MctsSearch mcts;        // Searches instead of searcher in MCTS mode, null otherwise
+    private ExecutorService background;   // Runs the searches of searchAsync, created when first needed
+    private volatile SolvedDatabase database;   // Perfect play of the boards it covers, or null
+    private volatile OpeningBook book;          // Moves of the first boards of the game, or null
+
+    private long ponderKey;              // Hash key of the board with the human's expected reply
+    private int ponderEmpty;             // Empty squares of that board
+    private SearchTask ponderTask;       // Search of that board, null when not pondering
+    private int ponderHits;              // Searches that used the work of a ponder search
+
+    /**
+     * Creates an engine searching on the calling thread.
+     *
+     * @param configs the board of the game; it is modified during searches, and restored.
+     */
+    public SearchEngine(Configurations configs) {
+        this(configs, SEQUENTIAL, 1);
+    }
+
+    /**
+     * Creates an engine that only tells finished games apart (see OutcomeEvaluator).
+     *
+     * @param configs the board of the game; it is modified during searches, and restored.
+     * @param mode SEQUENTIAL, ROOT_SPLIT, LAZY_SMP, PVS, MTDF or MCTS.
+     * @param threads the number of threads of the parallel modes.
+     * @throws IllegalArgumentException if the mode is unknown or threads is less than 1.
+     */
+    public SearchEngine(Configurations configs, int mode, int threads) {
+        this(configs, mode, threads, new OutcomeEvaluator());
+    }
+
+    /**
+     * Creates an engine.
+     *
+     * @param configs the board of the game; it is modified during searches, and restored.
+     * @param mode SEQUENTIAL, ROOT_SPLIT, LAZY_SMP, PVS, MTDF or MCTS.
+     * @param threads the number of threads of the parallel modes.
+     * @param evaluator the evaluator of the leaves of the search; MCTS plays games out instead.
+     * @throws IllegalArgumentException if the mode is unknown or threads is less than 1.
+     */
+    public SearchEngine(Configurations configs, int mode, int threads, Evaluator evaluator) {
+        if (mode < SEQUENTIAL || mode > MCTS) {
+            throw new IllegalArgumentException("Unknown search mode: " + mode);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.configs = configs;
+        this.table = configs.createTranspositionTable();   // Kept for the whole game
+        if (mode == ROOT_SPLIT && threads > 1) {
+            searcher = new ParallelSearch(configs, table, threads, evaluator);
+        } else if (mode == LAZY_SMP && threads > 1) {
+            searcher = new LazySmpSearch(configs, table, threads, evaluator);
+        } else if (mode == PVS) {
+            searcher = new PvsSearch(configs, table,
+                    new HeuristicMoveOrdering(configs.getBoardSize(), configs.getLengthToWin()), evaluator);
+        } else if (mode == MTDF) {
+            searcher = new MtdfSearch(configs, table,
+                    new HeuristicMoveOrdering(configs.getBoardSize(), configs.getLengthToWin()), evaluator);
+        } else {
+            searcher = new AlphaBetaSearch(configs, table,
+                    new HeuristicMoveOrdering(configs.getBoardSize(), configs.getLengthToWin()), evaluator);
+        }
+        this.mcts = (mode == MCTS) ? new MctsSearch(configs, threads) : null;
+    }
+
+    /**
+     * Creates the evaluator with the given name, as given on a command line.
+     *
+     * @param name "outcome" or "threat".
+     * @return a new evaluator.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static Evaluator createEvaluator(String name) {
+        switch (name) {
+            case "outcome": return new OutcomeEvaluator();
+            case "threat": return new ThreatEvaluator();
+            default: throw new IllegalArgumentException("Unknown evaluator: " + name);
+        }
+    }
+
+    /**
+     * Converts the name of a search mode, as given on a command line, to its constant.
+     *
+     * @param name "sequential", "root", "smp", "pvs", "mtdf" or "mcts".
+     * @return the mode.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static int parseMode(String name) {
+        switch (name) {
+            case "sequential": return SEQUENTIAL;
+            case "root": return ROOT_SPLIT;
+            case "smp": return LAZY_SMP;
+            case "pvs": return PVS;
+            case "mtdf": return MTDF;
+            case "mcts": return MCTS;
+            default: throw new IllegalArgumentException("Unknown search mode: " + name);
+        }
+    }
+
+    /**
+     * Searches the computer's best move on the current board, by iterative
+     * deepening within the given limits. The game must not be over.
+     *
+     * @param limits the depth, node and time limits of the search.
+     * @return the best move found and the statistics of the search; the move is
+     *         (-1, -1) if the search was stopped before its first iteration completed.
+     */
+    public SearchResult search(SearchLimits limits) {
+        SearchTask previous;
+        SearchTask ponder;
+        synchronized (this) {
+            previous = ponderTask;
+            ponder = endPondering(limits);
+        }
+        // A stopped ponder search still uses the searcher until it sees the stop
+        if (previous != null) awaitEnd(previous);
+        SearchResult pondered = resultOf(ponder);
+        if (pondered != null && pondered.getDepth() >= limits.getDepth()) return pondered;
+        searcher.setIterationListener(null);
+        searcher.setStopRequest(null);
+        if (mcts != null) {
+            mcts.setProgressListener(null);
+            mcts.setStopRequest(null);
+        }
+        return run(configs, limits, System.nanoTime(), pondered);
+    }
+
+    /**
+     * Starts a search of the computer's best move in the background, on the
+     * thread of the engine, and returns at once. The listener is told the best
+     * move after each iteration and the final result, through the given executor.
+     * A Swing client passes SwingUtilities::invokeLater, so that it can apply the
+     * result to its components directly.
+     *
+     * @param limits the depth, node and time limits of the search.
+     * @param listener the listener told the progress and the result.
+     * @param callbacks the executor the listener is called through.
+     * @return the handle of the search, to hurry or cancel it.
+     */
+    public synchronized SearchTask searchAsync(SearchLimits limits, SearchListener listener, Executor callbacks) {
+        SearchTask ponder = endPondering(limits);
+        SearchTask task = new SearchTask();
+        background().execute(() -> {
+            // The ponder search ran before on this thread, so it is over
+            SearchResult pondered = resultOf(ponder);
+            if (pondered != null && pondered.getDepth() >= limits.getDepth()) {
+                if (!task.isCancelled()) callbacks.execute(() -> listener.done(pondered));
+                task.complete(pondered, null);
+            } else {
+                runTask(task, configs, limits, listener, callbacks, pondered);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * Starts searching, in the background, the board the human is expected to
+     * play next, while the human thinks. This is called after the computer's
+     * move was made on the board. The human's expected reply is the best move
+     * remembered by the transposition table for the current board. When the
+     * next search finds the expected board (a ponder hit), the ponder search is
+     * stopped after its last completed iteration. Its result is returned if it
+     * reached the depth limit of the search; otherwise the search deepens from
+     * there, within its own limits, instead of starting over. On any other
+     * board the ponder search is cancelled.
+     *
+     * @param limits the limits of the next search; only the depth is used, the
+     *               ponder search runs until the human plays or it reaches it.
+     * @return the square (row * boardSize + col) of the expected reply, or -1 if
+     *         no reply could be predicted and the engine is not pondering.
+     */
+    public synchronized int startPondering(SearchLimits limits) {
+        endPondering(null);
+        if (mcts != null || configs.isTerminal()) return -1;
+        long entry = configs.probeConfiguration(table);
+        int reply = (entry == TranspositionTable.MISS) ? -1 : TranspositionTable.move(entry);
+        int boardSize = configs.getBoardSize();
+        if (reply < 0 || !configs.squareIsEmpty(reply / boardSize, reply % boardSize)) return -1;
+
+        Configurations expected = new Configurations(configs);
+        expected.savePlay(reply / boardSize, reply % boardSize, AlphaBetaSearch.HUMAN);
+        if (expected.isTerminal()) return -1;
+
+        // Read now: the ponder search plays its moves on the board while it runs
+        ponderKey = expected.getHashKey();
+        ponderEmpty = expected.emptySquareCount();
+        ponderTask = new SearchTask();
+        SearchTask task = ponderTask;
+        background().execute(() -> runTask(task, expected, SearchLimits.depth(limits.getDepth()), null, null, null));
+        return reply;
+    }
+
+    /**
+     * Ends pondering, if the engine is pondering, before a search of the board.
+     *
+     * @param limits the limits of the coming search, or null if there is none.
+     * @return the ponder search if it searched the current board, or null.
+     */
+    private SearchTask endPondering(SearchLimits limits) {
+        SearchTask ponder = ponderTask;
+        boolean hit = ponder != null && limits != null
+                      && ponderKey == configs.getHashKey() && ponderEmpty == configs.emptySquareCount();
+        ponderTask = null;
+        if (ponder == null) return null;
+        if (!hit) ponder.cancel();
+        else if (!ponder.isDone()) ponder.moveNow();   // Keeps its last completed iteration
+        return hit ? ponder : null;
+    }
+
+    /**
+     * Waits for a ponder search and returns its result if it has a move. The
+     * result of a ponder search stopped when the human played counts as
+     * complete, to the depth it reached.
+     *
+     * @param ponder the ponder search of the current board, or null.
+     * @return the result of the ponder search, or null if there is none or it
+     *         was stopped before its first iteration completed.
+     */
+    private SearchResult resultOf(SearchTask ponder) {
+        if (ponder == null) return null;
+        SearchResult result;
+        try {
+            result = ponder.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (result == null || result.getRow() < 0) return null;
+        synchronized (this) {
+            ponderHits++;
+        }
+        return new SearchResult(result.getPlay(), result.getDepth(), result.getNodes(),
+                                result.getTimeMillis() * 1000000L, false, result.getTableFillRate());
+    }
+
+    /**
+     * Waits for a search to end, whatever its outcome. An interruption is kept
+     * for the caller but does not cut the wait short: the search still has to
+     * give the searcher back.
+     *
+     * @param task the search, usually a cancelled one.
+     */
+    private static void awaitEnd(SearchTask task) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                task.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (IllegalStateException e) {
+                break;   // The search failed; its result was not wanted anyway
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Runs the search of a task on the thread of the engine.
+     *
+     * @param task the handle of the search.
+     * @param board the board to search.
+     * @param limits the depth, node and time limits of the search.
+     * @param listener the listener told the progress and the result, or null.
+     * @param callbacks the executor the listener is called through.
+     * @param resume the result of a ponder search of the board to continue, or null.
+     */
+    private void runTask(SearchTask task, Configurations board, SearchLimits limits,
+                         SearchListener listener, Executor callbacks, SearchResult resume) {
+        if (task.isCancelled()) {
+            task.complete(null, null);
+            return;
+        }
+        if (resume != null && task.iterationCompleted()) {
+            // The move was wanted at once, and the ponder search has one
+            if (listener != null) callbacks.execute(() -> listener.done(resume));
+            task.complete(resume, null);
+            return;
+        }
+        long start = System.nanoTime();
+        Consumer<PosPlay> progress = best -> {
+            // A request made before the search had a move is seen by the search from now on
+            if (!task.iterationCompleted() && listener != null) {
+                SearchResult partial = result(best, System.nanoTime() - start);
+                callbacks.execute(() -> listener.progress(partial));
+            }
+        };
+        searcher.setIterationListener(progress);
+        searcher.setStopRequest(task::stopRequested);
+        if (mcts != null) {
+            mcts.setProgressListener(progress);
+            mcts.setStopRequest(task::stopRequested);
+        }
+        try {
+            SearchResult result = run(board, limits, start, resume);
+            if (listener != null && !task.isCancelled()) {
+                callbacks.execute(() -> listener.done(result));
+            }
+            task.complete(result, null);
+        } catch (RuntimeException e) {
+            task.complete(null, e);
+        }
+    }
+
+    /**
+     * Returns the thread of the engine, creating it when first needed.
+     *
+     * @return the executor running the background searches.
+     */
+    private ExecutorService background() {
+        if (background == null) {
+            background = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "search-engine");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return background;
+    }
+
+    /**
+     * Runs a search on the calling thread.
+     *
+     * @param board the board to search: the board of the game, or a copy of it
+     *              with the human's expected reply played.
+     * @param limits the depth, node and time limits of the search.
+     * @param start the System.nanoTime() at which the search started.
+     * @param resume the result of a ponder search of the board to continue, or null.
+     * @return the result of the search.
+     */
+    private SearchResult run(Configurations board, SearchLimits limits, long start, SearchResult resume) {
+        SolvedDatabase solved = database;
+        if (solved != null && solved.covers(board)) {
+            PosPlay play = solved.bestPlay(board);
+            if (play.getRow() >= 0) {
+                return new SearchResult(play, board.emptySquareCount(), 0, System.nanoTime() - start, false,
+                                        table.getFillRate());
+            }
+        }
+        OpeningBook opening = book;
+        if (opening != null && opening.covers(board, searcher.evaluator)) {
+            PosPlay play = opening.lookup(board);
+            if (play != null) {
+                return new SearchResult(play, opening.getDepth(), 0, System.nanoTime() - start, false,
+                                        table.getFillRate());
+            }
+        }
+        if (mcts != null) {
+            mcts.setConfigurations(board);
+            PosPlay play = mcts.search(limits.getNodes(), limits.getTimeMillis());
+            return result(play, System.nanoTime() - start);
+        }
+        searcher.configs = board;
+        searcher.setNodeLimit(limits.getNodes());
+        if (resume != null) searcher.resumeFrom(resume.getPlay(), resume.getDepth());
+        try {
+            PosPlay play = searcher.iterativeDeepening(limits.getDepth(), limits.getTimeMillis());
+            if (play == null) play = new PosPlay(-1, -1, -1);
+            return result(play, System.nanoTime() - start);
+        } finally {
+            searcher.configs = configs;
+        }
+    }
+
+    /**
+     * Collects the statistics of the current or last search.
+     *
+     * @param play the best play found.
+     * @param time the time spent searching, in nanoseconds.
+     * @return the result of the search.
+     */
+    private SearchResult result(PosPlay play, long time) {
+        if (mcts != null) {
+            return new SearchResult(play, mcts.getTreeDepth(), mcts.getPlayouts(), time, mcts.wasStopped(), 0.0);
+        }
+        return new SearchResult(play, searcher.getCompletedLevel(), searcher.getNodes(), time,
+                                searcher.wasAborted(), table.getFillRate());
+    }
+
+    /**
+     * Sets the database the computer's moves are read from, on the boards it
+     * covers, instead of being searched. The score of such a move is its outcome
+     * on the scale of Configurations.evalBoard, and its depth the number of
+     * empty squares.
+     *
+     * @param database the database, or null to search every board.
+     */
+    public void setSolvedDatabase(SolvedDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Sets the book the computer's moves are read from, on the boards it holds,
+     * before any search. The score and depth of such a move are those of the
+     * search that built the book. A book searched with another kind of
+     * evaluator than the engine's is not used.
+     *
+     * @param book the book, or null to search every board.
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Asks the current search to stop as soon as possible. This may be called
+     * from any thread; the search then returns the move of its last completed
+     * iteration. A search that has not started yet is not affected: use the
+     * SearchTask of a background search to hurry it.
+     */
+    public void stop() {
+        searcher.stop();
+        if (mcts != null) mcts.stop();
+    }
+
+    /**
+     * Forgets everything learned in earlier searches, for a new game on the same board.
+     */
+    public void clear() {
+        table.clear();
+    }
+
+    /**
+     * Releases the threads of the engine. The engine cannot be used anymore afterwards.
+     */
+    public synchronized void shutdown() {
+        endPondering(null);
+        if (background != null) background.shutdownNow();
+        searcher.shutdown();
+        if (mcts != null) mcts.shutdown();
+    }
+
+    /**
+     * Returns the number of searches that used a ponder search of the board the
+     * human played to: its result, or the iterations it had completed.
+     *
+     * @return the number of ponder hits.
+     */
+    public synchronized int getPonderHits() {
+        return ponderHits;
+    }
+
+    /**
+     * Returns the board the engine searches.
+     *
+     * @return the board of the game.
+     */
+    public Configurations getConfigurations() {
+        return configs;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Limits of one search of a SearchEngine: the deepest level of the game tree,
+ * the number of nodes and the time it may use. The search stops at whichever
+ * limit is reached first, but always completes its shallowest iteration, so
+ * that it has a move to return.
+ */
+public class SearchLimits {
+    private final int depth;
+    private final long nodes;
+    private final long timeMillis;
+
+    /**
+     * Creates limits on the depth, nodes and time of a search.
+     *
+     * @param depth the maximum level of the game tree to explore.
+     * @param nodes the number of nodes to visit, or 0 for no limit.
+     * @param timeMillis the time budget in milliseconds, or 0 for no limit.
+     * @throws IllegalArgumentException if a limit is negative.
+     */
+    public SearchLimits(int depth, long nodes, long timeMillis) {
+        if (depth < 0 || nodes < 0 || timeMillis < 0) {
+            throw new IllegalArgumentException("Search limits must not be negative");
+        }
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * Creates limits on the depth of a search only.
+     *
+     * @param depth the maximum level of the game tree to explore.
+     * @return the limits.
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    /**
+     * Returns the maximum level of the game tree to explore.
+     *
+     * @return the depth limit.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of nodes the search may visit.
+     *
+     * @return the node limit, or 0 for none.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the time the search may use.
+     *
+     * @return the time budget in milliseconds, or 0 for none.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+}
@@ -0,0 +1,12 @@
+/* Receives the progress and the outcome of a search started with
+   SearchEngine.searchAsync. The methods are called through the executor given to
+   searchAsync, for example on the Swing event dispatch thread.                  */
+public interface SearchListener {
+
+  /* Called after each iteration of the search completes, with the best move found
+     so far and the statistics of the search up to that point.                   */
+  public void progress(SearchResult partial);
+
+  /* Called once the search is over, unless it was cancelled. */
+  public void done(SearchResult result);
+}
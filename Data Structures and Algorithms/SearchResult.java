@@ -0,0 +1,105 @@
+/**
+ * Outcome of one search of a SearchEngine: the best move found, its score and
+ * statistics on the work done to find it.
+ */
+public class SearchResult {
+    private final int row, col;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long timeNanos;
+    private final boolean stopped;
+    private final double tableFillRate;
+
+    /**
+     * Creates the result of a search.
+     *
+     * @param play the best play found and its score.
+     * @param depth the maximum level of the deepest completed search.
+     * @param nodes the number of nodes visited.
+     * @param timeNanos the time the search took, in nanoseconds.
+     * @param stopped true if a limit or stop request ended the search early.
+     * @param tableFillRate the fraction of the transposition table in use.
+     */
+    public SearchResult(PosPlay play, int depth, long nodes, long timeNanos, boolean stopped, double tableFillRate) {
+        this.row = play.getRow();
+        this.col = play.getCol();
+        this.score = play.getScore();
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeNanos = timeNanos;
+        this.stopped = stopped;
+        this.tableFillRate = tableFillRate;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    /**
+     * Returns the score of the best move, on the scale of the engine's Evaluator.
+     *
+     * @return the score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the best move and its score as a PosPlay.
+     *
+     * @return the best play.
+     */
+    public PosPlay getPlay() {
+        return new PosPlay(score, row, col);
+    }
+
+    /**
+     * Returns the maximum level of the deepest search that completed.
+     *
+     * @return the completed depth.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMillis() {
+        return timeNanos / 1000000;
+    }
+
+    /**
+     * Returns the number of nodes visited per second of search.
+     *
+     * @return the search speed.
+     */
+    public long getNodesPerSecond() {
+        return timeNanos == 0 ? 0 : nodes * 1000000000L / timeNanos;
+    }
+
+    /**
+     * Checks if the search ended before reaching its depth limit.
+     *
+     * @return true if a limit or stop request ended the search early.
+     */
+    public boolean wasStopped() {
+        return stopped;
+    }
+
+    public double getTableFillRate() {
+        return tableFillRate;
+    }
+
+    @Override
+    public String toString() {
+        return "move " + row + "," + col + " score " + score + " depth " + depth + " nodes " + nodes
+               + " time " + getTimeMillis() + " ms nps " + getNodesPerSecond();
+    }
+}
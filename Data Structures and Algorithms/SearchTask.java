@@ -0,0 +1,96 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Handle of a search running in the background, as returned by
+ * SearchEngine.searchAsync. The search can be hurried, to get the best move
+ * found so far, or cancelled, to discard its result. The search checks the
+ * requests of its own handle, so they are not lost if made before it starts,
+ * and do not stop another search of the engine.
+ */
+public class SearchTask {
+    private final CompletableFuture<SearchResult> result;
+    private volatile boolean moveNow;     // Set when the best move so far is wanted
+    private volatile boolean hasMove;     // Set once the first iteration completed
+    private volatile boolean cancelled;   // Set when the result is not wanted anymore
+
+    /**
+     * Creates the handle of a search.
+     */
+    SearchTask() {
+        this.result = new CompletableFuture<>();
+    }
+
+    /**
+     * Asks the search to finish as soon as possible with the best move found so
+     * far. The listener is still told the result. If the first iteration has not
+     * completed yet, the search stops right after it, so that there is a move.
+     */
+    public void moveNow() {
+        moveNow = true;
+    }
+
+    /**
+     * Stops the search and discards its result: the listener is not told it.
+     */
+    public void cancel() {
+        cancelled = true;
+        moveNow = true;
+    }
+
+    /**
+     * Called by the search after each completed iteration, or when it starts
+     * with a move already. Both this method and moveNow write their own flag
+     * before reading the other's, so a request made at the same time as the
+     * first iteration completes is not missed.
+     *
+     * @return true if the search has to stop now.
+     */
+    boolean iterationCompleted() {
+        hasMove = true;
+        return moveNow;
+    }
+
+    /**
+     * Checked by the search while it runs.
+     *
+     * @return true once the search has to stop: it was cancelled, or hurried
+     *         and has a move.
+     */
+    boolean stopRequested() {
+        return cancelled || (moveNow && hasMove);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * Waits for the search to finish.
+     *
+     * @return the result of the search, also when it was cancelled.
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public SearchResult get() throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Completes the task with the result of the search.
+     *
+     * @param searchResult the result, or null if the search failed with failure.
+     * @param failure the exception that ended the search, or null.
+     */
+    void complete(SearchResult searchResult, Throwable failure) {
+        if (failure != null) result.completeExceptionally(failure);
+        else result.complete(searchResult);
+    }
+}
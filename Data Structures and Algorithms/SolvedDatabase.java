@@ -0,0 +1,305 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Outcome of every board of a small game with perfect play, solved offline and
+ * read from a file, so that the computer plays those boards without searching.
+ *
+ * A board is identified by its rank: the number whose base-3 digits are its
+ * squares, 0 for an empty square, 1 for 'X' and 2 for 'O', with square 0 as
+ * the lowest digit. The file holds a short header and then the outcome of
+ * every rank in 2 bits, four to a byte, so a 4x4 board takes 3^16 / 4 bytes,
+ * about 10 MB. The file is memory-mapped rather than read: the outcomes stay
+ * out of the heap, and the pages actually used are loaded on demand.
+ *
+ * The outcomes are found by retrograde analysis. Playing a move adds a digit
+ * to the rank, so every board ranks below the boards it leads to; solving the
+ * boards from the highest rank down finds the outcome of each board's moves
+ * before the board itself. As in Play, 'X' moves first, so the player to move
+ * is known from the number of stones of each player.
+ */
+public class SolvedDatabase {
+    /** Outcome code of a rank that is not a board of the game. */
+    public static final int UNREACHABLE = 0;
+    /** Outcome code of a board the human ('X') wins. */
+    public static final int HUMAN_WINS = 1;
+    /** Outcome code of a drawn board. */
+    public static final int DRAW = 2;
+    /** Outcome code of a board the computer ('O') wins. */
+    public static final int COMPUTER_WINS = 3;
+
+    /** Largest number of squares of a board the database can hold. */
+    public static final int MAX_SQUARES = 16;
+
+    private static final int MAGIC = 0x53444231;    // "SDB1"
+    private static final int HEADER_BYTES = 12;     // Magic, board size and length to win
+
+    private final int boardSize;
+    private final int lengthToWin;
+    private final MappedByteBuffer outcomes;
+    private final int[] powers;   // 3 to the power of each square
+
+    /**
+     * Creates a database over a mapped file.
+     *
+     * @param boardSize the size of the board.
+     * @param lengthToWin the length of the sequence needed to win.
+     * @param outcomes the mapped file.
+     */
+    private SolvedDatabase(int boardSize, int lengthToWin, MappedByteBuffer outcomes) {
+        this.boardSize = boardSize;
+        this.lengthToWin = lengthToWin;
+        this.outcomes = outcomes;
+        this.powers = powersOfThree(boardSize * boardSize);
+    }
+
+    /**
+     * Solves every board of a game and writes the outcomes to a file.
+     *
+     * @param boardSize the size of the board.
+     * @param lengthToWin the length of the sequence needed to win.
+     * @param file the file to write; it is replaced if it exists.
+     * @throws IllegalArgumentException if the board has more than MAX_SQUARES squares.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void generate(int boardSize, int lengthToWin, Path file) throws IOException {
+        int squares = boardSize * boardSize;
+        if (squares > MAX_SQUARES) {
+            throw new IllegalArgumentException("Board too large to solve: " + boardSize + "x" + boardSize);
+        }
+        int[] powers = powersOfThree(squares);
+        int ranks = powers[squares - 1] * 3;
+        byte[] packed = new byte[(ranks + 3) / 4];
+        int[] lines = winningLines(boardSize, lengthToWin);
+
+        for (int rank = ranks - 1; rank >= 0; rank--) {
+            // Squares of each player, as bitmasks
+            int xMask = 0;
+            int oMask = 0;
+            int rest = rank;
+            for (int square = 0; square < squares; square++) {
+                int digit = rest % 3;
+                rest /= 3;
+                if (digit == 1) xMask |= 1 << square;
+                else if (digit == 2) oMask |= 1 << square;
+            }
+            int xCount = Integer.bitCount(xMask);
+            int oCount = Integer.bitCount(oMask);
+            if (xCount != oCount && xCount != oCount + 1) continue;   // UNREACHABLE
+
+            boolean xWins = hasLine(xMask, lines);
+            boolean oWins = hasLine(oMask, lines);
+            int outcome;
+            if (xWins && oWins) {
+                continue;
+            } else if (xWins) {
+                outcome = HUMAN_WINS;
+            } else if (oWins) {
+                outcome = COMPUTER_WINS;
+            } else if (xCount + oCount == squares) {
+                outcome = DRAW;
+            } else {
+                // The best outcome of the moves, for the player to move
+                boolean xToMove = xCount == oCount;
+                int digit = xToMove ? 1 : 2;
+                outcome = xToMove ? COMPUTER_WINS : HUMAN_WINS;
+                int occupied = xMask | oMask;
+                for (int square = 0; square < squares; square++) {
+                    if ((occupied & (1 << square)) != 0) continue;
+                    int child = get(packed, rank + digit * powers[square]);
+                    outcome = xToMove ? Math.min(outcome, child) : Math.max(outcome, child);
+                }
+            }
+            packed[rank >>> 2] |= (byte) (outcome << ((rank & 3) * 2));
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(boardSize).putInt(lengthToWin).flip();
+            channel.write(header);
+            ByteBuffer body = ByteBuffer.wrap(packed);
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+    }
+
+    /**
+     * Maps a file written by generate.
+     *
+     * @param file the file.
+     * @return the database.
+     * @throws IOException if the file cannot be read, or is not a database.
+     */
+    public static SolvedDatabase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC) {
+                throw new IOException("Not a solved database: " + file);
+            }
+            int boardSize = map.getInt(4);
+            int lengthToWin = map.getInt(8);
+            int squares = boardSize * boardSize;
+            if (boardSize < 1 || squares > MAX_SQUARES
+                || map.capacity() < HEADER_BYTES + (powersOfThree(squares)[squares - 1] * 3L + 3) / 4) {
+                throw new IOException("Truncated solved database: " + file);
+            }
+            return new SolvedDatabase(boardSize, lengthToWin, map);   // The mapping outlives the channel
+        }
+    }
+
+    /**
+     * Checks if the database solves the game of a board.
+     *
+     * @param configs the board.
+     * @return true if the board has the size and length to win of the database.
+     */
+    public boolean covers(Configurations configs) {
+        return configs.getBoardSize() == boardSize && configs.getLengthToWin() == lengthToWin;
+    }
+
+    /**
+     * Returns the outcome of a board with perfect play.
+     *
+     * @param configs the board; the database must cover it.
+     * @return HUMAN_WINS, DRAW, COMPUTER_WINS, or UNREACHABLE if the board cannot
+     *         occur in a game where 'X' moves first.
+     */
+    public int outcome(Configurations configs) {
+        return outcome(rank(configs));
+    }
+
+    /**
+     * Returns the computer's best move on a board where it is to play: a move
+     * keeping the best outcome the board has. Of equally good moves, the first
+     * in row-major order is chosen.
+     *
+     * @param configs the board, with one more 'X' than 'O'; the database must cover it.
+     * @return the best move, and its outcome on the scale of Configurations.evalBoard:
+     *         3 if the computer wins, 2 for a draw and 0 if the human wins; the
+     *         move is (-1, -1) if the board is not one where the computer plays.
+     */
+    public PosPlay bestPlay(Configurations configs) {
+        int rank = rank(configs);
+        int best = -1;
+        int bestOutcome = UNREACHABLE;
+        if (!configs.isTerminal() && outcome(rank) != UNREACHABLE) {
+            for (int square = 0; square < boardSize * boardSize; square++) {
+                if (!configs.squareIsEmpty(square / boardSize, square % boardSize)) continue;
+                int child = outcome(rank + 2 * powers[square]);
+                if (child > bestOutcome) {
+                    bestOutcome = child;
+                    best = square;
+                }
+            }
+        }
+        if (best < 0 || bestOutcome == UNREACHABLE) return new PosPlay(-1, -1, -1);
+        int score = (bestOutcome == COMPUTER_WINS) ? 3 : (bestOutcome == DRAW) ? 2 : 0;
+        return new PosPlay(score, best / boardSize, best % boardSize);
+    }
+
+    /**
+     * Returns the outcome stored for a rank.
+     *
+     * @param rank the rank of a board.
+     * @return the outcome code.
+     */
+    private int outcome(int rank) {
+        return (outcomes.get(HEADER_BYTES + (rank >>> 2)) >>> ((rank & 3) * 2)) & 3;
+    }
+
+    /**
+     * Computes the rank of a board.
+     *
+     * @param configs the board.
+     * @return the rank.
+     */
+    private int rank(Configurations configs) {
+        int rank = 0;
+        for (int square = 0; square < powers.length; square++) {
+            char symbol = configs.symbolAt(square / boardSize, square % boardSize);
+            if (symbol == 'X') rank += powers[square];
+            else if (symbol == 'O') rank += 2 * powers[square];
+        }
+        return rank;
+    }
+
+    /**
+     * Reads a 2-bit outcome from a packed array.
+     *
+     * @param packed the outcomes, four to a byte.
+     * @param rank the rank to read.
+     * @return the outcome code.
+     */
+    private static int get(byte[] packed, int rank) {
+        return (packed[rank >>> 2] >>> ((rank & 3) * 2)) & 3;
+    }
+
+    private static int[] powersOfThree(int squares) {
+        int[] powers = new int[squares];
+        int power = 1;
+        for (int square = 0; square < squares; square++) {
+            powers[square] = power;
+            power *= 3;
+        }
+        return powers;
+    }
+
+    /**
+     * Lists the runs of lengthToWin squares in a row, column or diagonal, as bitmasks.
+     *
+     * @param boardSize the size of the board.
+     * @param lengthToWin the length of the sequence needed to win.
+     * @return the bitmask of each run.
+     */
+    private static int[] winningLines(int boardSize, int lengthToWin) {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        int[] lines = new int[4 * boardSize * boardSize];
+        int count = 0;
+        for (int[] d : directions) {
+            for (int row = 0; row < boardSize; row++) {
+                for (int col = 0; col < boardSize; col++) {
+                    int endRow = row + d[0] * (lengthToWin - 1);
+                    int endCol = col + d[1] * (lengthToWin - 1);
+                    if (endRow < 0 || endRow >= boardSize || endCol < 0 || endCol >= boardSize) continue;
+                    int mask = 0;
+                    for (int k = 0; k < lengthToWin; k++) {
+                        mask |= 1 << ((row + d[0] * k) * boardSize + col + d[1] * k);
+                    }
+                    lines[count++] = mask;
+                }
+            }
+        }
+        return Arrays.copyOf(lines, count);
+    }
+
+    private static boolean hasLine(int squares, int[] lines) {
+        for (int line : lines) {
+            if ((squares & line) == line) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the database of a game. To run the generator type:
+     * java SolvedDatabase size length file
+     *
+     * @param args the board size, the length to win and the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println("Usage: java SolvedDatabase board-size length-to-win file");
+            System.exit(0);
+        }
+        long start = System.nanoTime();
+        generate(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Path.of(args[2]));
+        System.out.println("Solved in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
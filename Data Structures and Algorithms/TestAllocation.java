@@ -0,0 +1,48 @@
+import java.lang.management.ManagementFactory;
+
+public class TestAllocation {
+
+	  /*
+	  ** Test program checking that the search core does not allocate per node:
+	  ** once warmed up, a search allocates a few objects per iteration only.
+	  ** The bytes are counted by the JVM for the searching thread.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    com.sun.management.ThreadMXBean threads =
+	        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	    if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("Allocated bytes are not counted by this JVM");
+			return;
+	    }
+	    threads.setThreadAllocatedMemoryEnabled(true);
+	    long thread = Thread.currentThread().getId();
+	    int[] modes = {SearchEngine.SEQUENTIAL, SearchEngine.PVS, SearchEngine.MTDF};
+	    String[] names = {"alpha-beta", "PVS", "MTD(f)"};
+
+	    // Test 1: every mode and evaluator allocates less than a byte per node.
+	    boolean passed = true;
+	    for (String evaluator : new String[] {"outcome", "threat"}) {
+			for (int m = 0; m < modes.length; m++) {
+				Configurations configs = Configurations.fromString(6, 4, "       X    O      X                ");
+				SearchEngine engine = new SearchEngine(configs, modes[m], 1, SearchEngine.createEvaluator(evaluator));
+				for (int warmup = 0; warmup < 3; warmup++) {
+					engine.clear();
+					engine.search(SearchLimits.depth(5));
+				}
+				engine.clear();
+				long before = threads.getThreadAllocatedBytes(thread);
+				SearchResult result = engine.search(SearchLimits.depth(5));
+				long bytes = threads.getThreadAllocatedBytes(thread) - before;
+				double perNode = (double) bytes / result.getNodes();
+				System.out.println(evaluator + ", " + names[m] + ": " + result.getNodes() + " nodes, "
+				                   + bytes + " bytes, " + String.format("%.3f", perNode) + " B/node");
+				if (perNode >= 1) passed = false;
+			}
+	    }
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+	  }
+	}
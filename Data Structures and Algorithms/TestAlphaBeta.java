@@ -0,0 +1,146 @@
+import java.util.Random;
+
+public class TestAlphaBeta {
+
+	  /*
+	  ** Test program for the AlphaBetaSearch class: the caches and heuristics
+	  ** that speed it up must not change the scores it finds.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    Random random = new Random(31);
+	    boolean passed;
+
+	    // Test 1: along games on a 5x5 board, a transposition table kept from move
+	    // to move gives the scores of a new table at every move. Once cleared for
+	    // a new game, it holds nothing.
+	    passed = true;
+	    for (int game = 0; game < 6 && passed; game++) {
+			passed = playGame(new Configurations(5, 4, 0), 5, random, false) != null;
+	    }
+	    Configurations configs = Configurations.fromString(5, 4, "      X     O     X      ");
+	    TranspositionTable table = configs.createTranspositionTable();
+	    AlphaBetaSearch search = new AlphaBetaSearch(configs, table, new HeuristicMoveOrdering(5, 4));
+	    int score = search.iterativeDeepening(5, 0).getScore();
+	    table.clear();
+	    if (table.numRecords() != 0 || configs.probeConfiguration(table) != TranspositionTable.MISS
+	        || search.iterativeDeepening(5, 0).getScore() != score) passed = false;
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: on a 4x4 board searched to the end of the game, where the human
+	    // plays the reply the computer expected, the kept table also visits fewer
+	    // nodes than new tables after the first move.
+	    passed = true;
+	    long keptNodes = 0;
+	    long freshNodes = 0;
+	    for (int game = 0; game < 2 && passed; game++) {
+			long[] nodes = playGame(new Configurations(4, 4, 0), 16, random, true);
+			if (nodes == null) passed = false;
+			else {
+				keptNodes += nodes[0];
+				freshNodes += nodes[1];
+			}
+	    }
+	    if (passed && keptNodes < freshNodes) System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+	    System.out.println("kept table: " + keptNodes + " nodes, new table at each move: " + freshNodes + " nodes");
+
+	    // Test 3: killer moves and history find the same scores as the static
+	    // prior alone and as row-major order, and visit fewer nodes than both.
+	    passed = true;
+	    long[] orderingNodes = new long[3];
+	    for (int[] game : new int[][] {{5, 4}, {6, 4}}) {
+			int size = game[0];
+			int toWin = game[1];
+			for (int trial = 0; trial < 10 && passed; trial++) {
+				Configurations start = randomPosition(size, toWin, random);
+				MoveOrdering[] orderings = {
+					new RowMajorMoveOrdering(size),
+					new HeuristicMoveOrdering(size, toWin) {
+						@Override
+						public void recordCutoff(int ply, int move, char symbol, int depth) {
+							// Static prior only: no killers, no history
+						}
+					},
+					new HeuristicMoveOrdering(size, toWin)
+				};
+				int expected = 0;
+				for (int k = 0; k < orderings.length; k++) {
+					Configurations copy = new Configurations(start);
+					search = new AlphaBetaSearch(copy, copy.createTranspositionTable(), orderings[k]);
+					score = search.iterativeDeepening(5, 0).getScore();
+					orderingNodes[k] += search.getNodes();
+					if (k == 0) expected = score;
+					else if (score != expected) passed = false;
+				}
+			}
+	    }
+	    if (passed && orderingNodes[2] < orderingNodes[1] && orderingNodes[1] < orderingNodes[0])
+			System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+	    System.out.println("row-major: " + orderingNodes[0] + " nodes, static prior: " + orderingNodes[1]
+	                       + " nodes, with killers and history: " + orderingNodes[2] + " nodes");
+	  }
+
+	  // Plays a game against a search keeping its table, and compares each of its
+	  // moves with a search using a new table. The human plays at random, or the
+	  // reply the kept table expects. Returns the nodes visited by each after the
+	  // first move, or null if a score differs.
+	  private static long[] playGame(Configurations configs, int depth, Random random, boolean expectedReply) {
+	    int size = configs.getBoardSize();
+	    int toWin = configs.getLengthToWin();
+	    TranspositionTable kept = configs.createTranspositionTable();
+	    AlphaBetaSearch search = new AlphaBetaSearch(configs, kept, new HeuristicMoveOrdering(size, toWin));
+	    long[] nodes = new long[2];
+	    playRandom(configs, random);
+	    for (int move = 0; !configs.isTerminal(); move++) {
+			PosPlay play = search.iterativeDeepening(depth, 0);
+			Configurations copy = new Configurations(configs);
+			AlphaBetaSearch fresh = new AlphaBetaSearch(copy, copy.createTranspositionTable(),
+			                                            new HeuristicMoveOrdering(size, toWin));
+			if (fresh.iterativeDeepening(depth, 0).getScore() != play.getScore()) return null;
+			if (move > 0) {
+				nodes[0] += search.getNodes();
+				nodes[1] += fresh.getNodes();
+			}
+			configs.savePlay(play.getRow(), play.getCol(), 'O');
+			if (configs.isTerminal()) break;
+			int reply = expectedReply ? TranspositionTable.move(configs.probeConfiguration(kept)) : -1;
+			if (reply >= 0) configs.savePlay(reply / size, reply % size, 'X');
+			else playRandom(configs, random);
+	    }
+	    return nodes;
+	  }
+
+	  // Plays random moves, starting with the human, until it is the computer's turn
+	  // on a board where the game is not over
+	  private static Configurations randomPosition(int size, int toWin, Random random) {
+	    while (true) {
+			Configurations configs = new Configurations(size, toWin, 0);
+			int stones = 2 * random.nextInt(3) + 1;
+			char symbol = 'X';
+			for (int i = 0; i < stones && !configs.isTerminal(); i++) {
+				int square;
+				do {
+					square = random.nextInt(size * size);
+				} while (!configs.squareIsEmpty(square / size, square % size));
+				configs.savePlay(square / size, square % size, symbol);
+				symbol = (symbol == 'X') ? 'O' : 'X';
+			}
+			if (!configs.isTerminal() && symbol == 'O') return configs;
+	    }
+	  }
+
+	  // Plays a random move of the human
+	  private static void playRandom(Configurations configs, Random random) {
+	    int size = configs.getBoardSize();
+	    int square;
+	    do {
+			square = random.nextInt(size * size);
+	    } while (!configs.squareIsEmpty(square / size, square % size));
+	    configs.savePlay(square / size, square % size, 'X');
+	  }
+	}
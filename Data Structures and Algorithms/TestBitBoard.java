@@ -0,0 +1,132 @@
+import java.util.Random;
+
+public class TestBitBoard {
+
+	  /*
+	  ** Test program for the run detection of the BitBoard class, compared with
+	  ** a scan of the squares one by one.
+	  */
+
+	  private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    boolean passed;
+
+	    // Test 1: a single run, in each direction and from every square where it
+	    // fits, is found; the same run one square shorter is not. The 9x9 and
+	    // 12x12 boards take two and three words, so some runs cross a word boundary.
+	    passed = true;
+	    for (int size = 3; size <= 12 && passed; size++) {
+			for (int length = 2; length <= Math.min(size, 6) && passed; length++) {
+				for (int[] d : DIRECTIONS) {
+					for (int row = 0; row < size; row++) {
+						for (int col = 0; col < size; col++) {
+							if (!fits(size, row, col, d, length)) continue;
+							BitBoard full = new BitBoard(size);
+							BitBoard shorter = new BitBoard(size);
+							for (int k = 0; k < length; k++) {
+								int square = (row + d[0] * k) * size + col + d[1] * k;
+								full.set(square);
+								if (k > 0) shorter.set(square);
+							}
+							if (!full.hasRun(length) || shorter.hasRun(length)) passed = false;
+						}
+					}
+				}
+			}
+	    }
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: squares that follow each other in the bitmask but wrap from the
+	    // end of a row to the next one, or diagonals that leave the board by a
+	    // side, are not runs.
+	    passed = true;
+	    for (int size = 4; size <= 12 && passed; size++) {
+			int length = Math.min(size, 5);
+			for (int row = 0; row < size; row++) {
+				for (int cut = 1; cut < length; cut++) {
+					// cut squares at the end of the row, the others at the start of the next
+					BitBoard wrapped = new BitBoard(size);
+					int start = row * size + size - cut;
+					for (int k = 0; k < length && start + k < size * size; k++) {
+						wrapped.set(start + k);
+					}
+					if (wrapped.hasRun(length)) passed = false;
+
+					// A diagonal going off the right side, continued on the left side
+					BitBoard diagonal = new BitBoard(size);
+					for (int k = 0; k < length; k++) {
+						int r = (row + k) % size;
+						int c = (size - cut + k) % size;
+						diagonal.set(r * size + c);
+					}
+					if (diagonal.hasRun(length) != scanWins(diagonal, size, length)) passed = false;
+				}
+			}
+	    }
+	    if (passed) System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: on random boards of every size from one to three words, hasRun
+	    // agrees with the square by square scan.
+	    passed = true;
+	    Random random = new Random(11);
+	    for (int trial = 0; trial < 30000 && passed; trial++) {
+			int size = 3 + random.nextInt(10);
+			int length = 3 + random.nextInt(Math.min(size, 6) - 2);
+			BitBoard board = new BitBoard(size);
+			int stones = random.nextInt(size * size / 2 + 1);
+			for (int i = 0; i < stones; i++) {
+				board.set(random.nextInt(size * size));
+			}
+			if (board.hasRun(length) != scanWins(board, size, length)) passed = false;
+			if (board.count() != scanCount(board, size)) passed = false;
+	    }
+	    if (passed) System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: a copy is independent of its original. Row 7 of a 9x9 board
+	    // starts at square 63, the last of the first word.
+	    BitBoard original = new BitBoard(9);
+	    for (int k = 0; k < 4; k++) original.set(63 + k);
+	    BitBoard copy = new BitBoard(original);
+	    copy.set(67);
+	    original.clear(63);
+	    if (copy.hasRun(5) && !original.hasRun(4) && original.hasRun(3) && !original.get(67))
+			System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed");
+	  }
+
+	  // Checks if a run of length squares from (row, col) in direction d stays on the board
+	  private static boolean fits(int size, int row, int col, int[] d, int length) {
+	    int endRow = row + d[0] * (length - 1);
+	    int endCol = col + d[1] * (length - 1);
+	    return endRow >= 0 && endRow < size && endCol >= 0 && endCol < size;
+	  }
+
+	  // Looks for a run by reading every square, as Configurations did before BitBoard
+	  private static boolean scanWins(BitBoard board, int size, int length) {
+	    for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				for (int[] d : DIRECTIONS) {
+					if (!fits(size, row, col, d, length)) continue;
+					int k = 0;
+					while (k < length && board.get((row + d[0] * k) * size + col + d[1] * k)) k++;
+					if (k == length) return true;
+				}
+			}
+	    }
+	    return false;
+	  }
+
+	  private static int scanCount(BitBoard board, int size) {
+	    int count = 0;
+	    for (int square = 0; square < size * size; square++) {
+			if (board.get(square)) count++;
+	    }
+	    return count;
+	  }
+	}
@@ -0,0 +1,178 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestConcurrentDict {
+
+	  /*
+	  ** Stress test program for the ConcurrentHashDictionary class. Several threads
+	  ** use the same dictionary at the same time; every result they see must be one
+	  ** that some order of the operations, one at a time, could have produced.
+	  */
+
+	  private static final int KEYS = 20000;
+
+	  // **************************************
+	  public static void main(String[] args) throws InterruptedException {
+	  // **************************************
+	    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+	    if (args.length > 0) threads = Integer.parseInt(args[0]);
+	    final int n = threads;
+	    boolean passed;
+
+	    // Test 1: the dictionary behaves like HashDictionary on a single thread.
+	    ConcurrentHashDictionary dict = new ConcurrentHashDictionary(4);
+	    passed = true;
+	    try {
+			dict.put(new Data("answer", 42));
+			dict.put(new Data("record2", 40));
+			try {
+				dict.put(new Data("answer", 56));
+				passed = false;
+			} catch (DictionaryException e) {
+				// Expected: the key is already in the dictionary
+			}
+			try {
+				dict.remove("missing");
+				passed = false;
+			} catch (DictionaryException e) {
+				// Expected: the key is not in the dictionary
+			}
+			if (dict.get("answer") != 42 || dict.get("record2") != 40 || dict.get("missing") != -1) passed = false;
+			dict.remove("answer");
+			if (dict.get("answer") != -1 || dict.numRecords() != 1) passed = false;
+	    } catch (DictionaryException e) {
+			passed = false;
+	    }
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: threads insert disjoint keys into a small table, so that every
+	    // segment is resized while the others are in use. All keys are then found.
+	    ConcurrentHashDictionary shared = new ConcurrentHashDictionary(16, 8);
+	    AtomicInteger failures = new AtomicInteger();
+	    runThreads(n, t -> {
+			for (int i = t; i < KEYS; i += n) {
+				shared.put(new Data(key(i), score(i)));
+			}
+	    }, failures);
+	    passed = failures.get() == 0 && shared.numRecords() == KEYS;
+	    for (int i = 0; i < KEYS && passed; i++) {
+			if (shared.get(key(i)) != score(i)) passed = false;
+	    }
+	    if (passed) System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: readers run while writers remove and put back half of the keys.
+	    // A reader must always find the keys that are never removed, and find
+	    // either nothing or the right score for the others.
+	    AtomicBoolean writing = new AtomicBoolean(true);
+	    AtomicInteger wrongReads = new AtomicInteger();
+	    failures.set(0);
+	    runThreads(n, t -> {
+			if (t % 2 == 0) {
+				for (int round = 0; round < 5; round++) {
+					for (int i = t; i < KEYS; i += 2 * n) {
+						shared.remove(key(i));
+					}
+					for (int i = t; i < KEYS; i += 2 * n) {
+						shared.put(new Data(key(i), score(i)));
+					}
+				}
+				writing.set(false);
+			} else {
+				do {
+					for (int i = 0; i < KEYS; i++) {
+						int found = shared.get(key(i));
+						boolean removable = i % n % 2 == 0 && (i % (2 * n)) < n;
+						if (found != score(i) && (found != -1 || !removable)) wrongReads.incrementAndGet();
+					}
+				} while (writing.get());
+			}
+	    }, failures);
+	    if (failures.get() == 0 && wrongReads.get() == 0 && shared.numRecords() == KEYS)
+			System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: all threads try to insert the same keys. Exactly one put of
+	    // each key succeeds, and the others throw a DictionaryException.
+	    ConcurrentHashDictionary contended = new ConcurrentHashDictionary(64);
+	    AtomicInteger inserted = new AtomicInteger();
+	    failures.set(0);
+	    runThreads(n, t -> {
+			for (int i = 0; i < KEYS; i++) {
+				try {
+					contended.put(new Data(key(i), score(i)));
+					inserted.incrementAndGet();
+				} catch (DictionaryException e) {
+					// Another thread inserted the key first
+				}
+			}
+	    }, failures);
+	    if (failures.get() == 0 && inserted.get() == KEYS && contended.numRecords() == KEYS)
+			System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed");
+
+	    // Test 5: all threads insert and remove the same few keys. The successful
+	    // puts minus the successful removes is the number of records left.
+	    ConcurrentHashDictionary toggled = new ConcurrentHashDictionary(8, 2);
+	    AtomicInteger balance = new AtomicInteger();
+	    failures.set(0);
+	    runThreads(n, t -> {
+			for (int i = 0; i < 100000; i++) {
+				String key = key((i * 7 + t) % 32);
+				try {
+					if ((i + t) % 2 == 0) {
+						toggled.put(new Data(key, 1));
+						balance.incrementAndGet();
+					} else {
+						toggled.remove(key);
+						balance.decrementAndGet();
+					}
+				} catch (DictionaryException e) {
+					// The key was already in, or already out of, the dictionary
+				}
+			}
+	    }, failures);
+	    int left = 0;
+	    for (int i = 0; i < 32; i++) {
+			if (toggled.get(key(i)) != -1) left++;
+	    }
+	    if (failures.get() == 0 && balance.get() == left && toggled.numRecords() == left)
+			System.out.println("   Test 5 succeeded");
+	    else System.out.println("***Test 5 failed");
+	  }
+
+	  private static String key(int i) {
+	    return "config" + i;
+	  }
+
+	  private static int score(int i) {
+	    return i % 4;
+	  }
+
+	  private interface Work {
+	    void run(int thread);
+	  }
+
+	  // Runs the work on the given number of threads, all started at the same time,
+	  // and counts the threads that ended with an unexpected exception
+	  private static void runThreads(int count, Work work, AtomicInteger failures) throws InterruptedException {
+	    CountDownLatch start = new CountDownLatch(1);
+	    Thread[] threads = new Thread[count];
+	    for (int t = 0; t < count; t++) {
+			final int id = t;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+					work.run(id);
+				} catch (Exception e) {
+					failures.incrementAndGet();
+				}
+			});
+			threads[t].start();
+	    }
+	    start.countDown();
+	    for (Thread thread : threads) thread.join();
+	  }
+	}
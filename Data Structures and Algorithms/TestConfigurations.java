@@ -0,0 +1,262 @@
+import java.util.Random;
+
+public class TestConfigurations {
+
+	  /*
+	  ** Test program for the board state kept up to date by the savePlay method
+	  ** of the Configurations class, and for the cache keys it shares between
+	  ** boards that are rotations or reflections of each other.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    Random random = new Random(23);
+	    int[][] games = {{3, 3}, {4, 3}, {5, 4}, {8, 5}, {9, 5}, {12, 5}};
+	    boolean passed;
+
+	    // Test 1: along random games, with moves taken back and played again as a
+	    // search does, the terminal state tracked from the last play is the one
+	    // found by scanning the whole board. On won boards, an older move is also
+	    // lifted, which may or may not break the winning sequence, and put back.
+	    passed = true;
+	    for (int[] game : games) {
+			int size = game[0];
+			int toWin = game[1];
+			for (int trial = 0; trial < 200 && passed; trial++) {
+				Configurations configs = new Configurations(size, toWin, 0);
+				int[] played = new int[size * size];
+				int count = 0;
+				for (int step = 0; step < 4 * size * size && passed; step++) {
+					if (configs.lastPlayWins() && count > 1) {
+						int k = random.nextInt(count - 1);
+						char symbol = k % 2 == 0 ? 'X' : 'O';
+						configs.savePlay(played[k] / size, played[k] % size, ' ');
+						passed = matchesScan(configs, size, toWin);
+						configs.savePlay(played[k] / size, played[k] % size, symbol);
+						passed = passed && matchesScan(configs, size, toWin);
+					}
+					if (count > 0 && (configs.isTerminal() || random.nextInt(3) == 0)) {
+						// Take back the last move, which may be the winning one
+						count--;
+						configs.savePlay(played[count] / size, played[count] % size, ' ');
+					} else if (!configs.isTerminal()) {
+						int square;
+						do {
+							square = random.nextInt(size * size);
+						} while (!configs.squareIsEmpty(square / size, square % size));
+						configs.savePlay(square / size, square % size, count % 2 == 0 ? 'X' : 'O');
+						played[count++] = square;
+					}
+					passed = matchesScan(configs, size, toWin);
+				}
+			}
+	    }
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: a full board without a winning sequence is a draw, and taking
+	    // back any of its moves makes the game go on.
+	    Configurations full = Configurations.fromString(3, 3, "XOXXOOOXX");
+	    passed = full.isTerminal() && full.isDraw() && !full.lastPlayWins() && matchesScan(full, 3, 3);
+	    for (int square = 0; square < 9 && passed; square++) {
+			char symbol = full.toString().charAt(square);
+			full.savePlay(square / 3, square % 3, ' ');
+			if (full.isTerminal() || !matchesScan(full, 3, 3)) passed = false;
+			full.savePlay(square / 3, square % 3, symbol);
+	    }
+	    if (passed) System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: the 8 rotations and reflections of a board share its canonical
+	    // key, and a square mapped to the canonical board maps back to itself.
+	    passed = true;
+	    for (int trial = 0; trial < 500 && passed; trial++) {
+			int size = 3 + random.nextInt(5);
+			String board = randomBoard(size, random);
+			Configurations configs = Configurations.fromString(size, 3, board);
+			for (int t = 0; t < 8; t++) {
+				Configurations image = Configurations.fromString(size, 3, transform(board, size, t));
+				if (image.getCanonicalKey() != configs.getCanonicalKey()) passed = false;
+			}
+			for (int square = 0; square < size * size; square++) {
+				if (configs.fromCanonicalSquare(configs.toCanonicalSquare(square)) != square) passed = false;
+			}
+			configs.setSymmetryCanonicalization(false);
+			if (configs.getCanonicalKey() != configs.getHashKey()) passed = false;
+	    }
+	    if (passed) System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: on a board left unchanged by some of its symmetries, a move is a
+	    // symmetric duplicate if one of them maps it to an earlier square, and
+	    // the board it leads to is then the same as after that earlier move. On
+	    // an empty 3x3 board, only a corner, an edge and the center are kept.
+	    passed = true;
+	    Configurations empty = new Configurations(3, 3, 0);
+	    for (int square = 0; square < 9; square++) {
+			boolean expected = square != 0 && square != 1 && square != 4;
+			if (empty.isSymmetricDuplicate(square / 3, square % 3) != expected) passed = false;
+	    }
+	    for (int trial = 0; trial < 2000 && passed; trial++) {
+			int size = 3 + random.nextInt(4);
+			String board = symmetricBoard(size, random);
+			Configurations configs = Configurations.fromString(size, 3, board);
+			long[] childKeys = new long[size * size];
+			for (int square = 0; square < size * size; square++) {
+				if (!configs.squareIsEmpty(square / size, square % size)) continue;
+				configs.savePlay(square / size, square % size, 'O');
+				childKeys[square] = configs.getCanonicalKey();
+				configs.savePlay(square / size, square % size, ' ');
+				boolean expected = false;
+				for (int t = 1; t < 8; t++) {
+					if (transform(board, size, t).equals(board) && transformSquare(square, size, t) < square)
+						expected = true;
+				}
+				boolean duplicate = configs.isSymmetricDuplicate(square / size, square % size);
+				if (duplicate != expected) passed = false;
+				if (duplicate) {
+					boolean seen = false;
+					for (int earlier = 0; earlier < square; earlier++) {
+						if (configs.squareIsEmpty(earlier / size, earlier % size) && childKeys[earlier] == childKeys[square])
+							seen = true;
+					}
+					if (!seen) passed = false;
+				}
+			}
+	    }
+	    if (passed) System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed");
+
+	    // Test 5: an entry stored for a board is found from each of its rotations
+	    // and reflections, with its best move mapped to the same square of that
+	    // board, or to one equivalent to it if the board is symmetric; the
+	    // dictionary keyed by the same hash finds its score too.
+	    passed = true;
+	    for (int trial = 0; trial < 300 && passed; trial++) {
+			int size = 3 + random.nextInt(5);
+			String board = randomBoard(size, random);
+			Configurations configs = Configurations.fromString(size, 3, board);
+			int move = board.indexOf(' ');
+			if (move < 0) continue;
+			TranspositionTable table = configs.createTranspositionTable();
+			LongHashDictionary dict = configs.createDictionary();
+			configs.storeConfiguration(table, 7, TranspositionTable.EXACT, 4, move);
+			configs.addConfiguration(dict, 7);
+			configs.savePlay(move / size, move % size, 'O');
+			long played = configs.getCanonicalKey();
+			boolean symmetric = false;
+			for (int t = 1; t < 8; t++) {
+				if (transform(board, size, t).equals(board)) symmetric = true;
+			}
+			for (int t = 0; t < 8; t++) {
+				String imageBoard = transform(board, size, t);
+				Configurations image = Configurations.fromString(size, 3, imageBoard);
+				long entry = image.probeConfiguration(table);
+				if (entry == TranspositionTable.MISS || TranspositionTable.score(entry) != 7
+				    || image.repeatedConfiguration(dict) != 7) {
+					passed = false;
+					continue;
+				}
+				int found = TranspositionTable.move(entry);
+				if (!symmetric && found != transformSquare(move, size, t)) passed = false;
+				if (found < 0 || !image.squareIsEmpty(found / size, found % size)) {
+					passed = false;
+					continue;
+				}
+				image.savePlay(found / size, found % size, 'O');
+				if (image.getCanonicalKey() != played) passed = false;
+			}
+	    }
+	    if (passed) System.out.println("   Test 5 succeeded");
+	    else System.out.println("***Test 5 failed");
+	  }
+
+	  // Maps a square by one of the 8 symmetries of the board: t & 3 quarter turns,
+	  // then a reflection across the vertical axis if t & 4 is set
+	  private static int transformSquare(int square, int size, int t) {
+	    int row = square / size;
+	    int col = square % size;
+	    for (int turn = 0; turn < (t & 3); turn++) {
+			int next = col;
+			col = size - 1 - row;
+			row = next;
+	    }
+	    if ((t & 4) != 0) col = size - 1 - col;
+	    return row * size + col;
+	  }
+
+	  private static String transform(String board, int size, int t) {
+	    char[] image = new char[board.length()];
+	    for (int square = 0; square < board.length(); square++) {
+			image[transformSquare(square, size, t)] = board.charAt(square);
+	    }
+	    return new String(image);
+	  }
+
+	  // A board of a few stones of each player, in any position
+	  private static String randomBoard(int size, Random random) {
+	    char[] board = new char[size * size];
+	    java.util.Arrays.fill(board, ' ');
+	    int stones = random.nextInt(size * size / 2 + 1);
+	    for (int i = 0; i < stones; i++) {
+			board[random.nextInt(size * size)] = random.nextBoolean() ? 'X' : 'O';
+	    }
+	    return new String(board);
+	  }
+
+	  // A board left unchanged by a random symmetry: stones are placed together
+	  // with their images under it
+	  private static String symmetricBoard(int size, Random random) {
+	    int t = random.nextInt(8);
+	    char[] board = new char[size * size];
+	    java.util.Arrays.fill(board, ' ');
+	    int stones = random.nextInt(4);
+	    for (int i = 0; i < stones; i++) {
+			int square = random.nextInt(size * size);
+			char symbol = random.nextBoolean() ? 'X' : 'O';
+			for (int k = 0; k < 4; k++) {
+				board[square] = symbol;
+				square = transformSquare(square, size, t);
+			}
+	    }
+	    return new String(board);
+	  }
+
+	  // Compares the tracked state of a board with a scan of all of its squares
+	  private static boolean matchesScan(Configurations configs, int size, int toWin) {
+	    String board = configs.toString();
+	    boolean xWins = scanWins(board, size, toWin, 'X');
+	    boolean oWins = scanWins(board, size, toWin, 'O');
+	    int empty = 0;
+	    for (int square = 0; square < board.length(); square++) {
+			if (board.charAt(square) == ' ') empty++;
+			if (configs.symbolAt(square / size, square % size) != board.charAt(square)) return false;
+	    }
+	    return configs.lastPlayWins() == (xWins || oWins)
+	        && configs.isTerminal() == (xWins || oWins || empty == 0)
+	        && configs.wins('X') == xWins && configs.wins('O') == oWins
+	        && configs.isDraw() == (empty == 0 && !xWins && !oWins)
+	        && configs.emptySquareCount() == empty;
+	  }
+
+	  private static boolean scanWins(String board, int size, int toWin, char symbol) {
+	    int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+	    for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				for (int[] d : directions) {
+					int k = 0;
+					int r = row;
+					int c = col;
+					while (k < toWin && r >= 0 && r < size && c >= 0 && c < size && board.charAt(r * size + c) == symbol) {
+						k++;
+						r += d[0];
+						c += d[1];
+					}
+					if (k == toWin) return true;
+				}
+			}
+	    }
+	    return false;
+	  }
+	}
@@ -0,0 +1,127 @@
+import java.util.Random;
+
+public class TestEvaluator {
+
+	  /*
+	  ** Test program for the ThreatEvaluator class and the line counters of
+	  ** Configurations it reads.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    Random random = new Random(42);
+	    boolean passed;
+
+	    // Test 1: the line counts kept up to date by savePlay are those of a board
+	    // built from scratch, while stones are placed and removed.
+	    passed = true;
+	    Configurations configs = new Configurations(7, 4, 0);
+	    configs.enableLineCounts();
+	    for (int i = 0; i < 400 && passed; i++) {
+			int square = random.nextInt(49);
+			char symbol = configs.squareIsEmpty(square / 7, square % 7) ? (random.nextBoolean() ? 'X' : 'O') : ' ';
+			configs.savePlay(square / 7, square % 7, symbol);
+			Configurations rebuilt = Configurations.fromString(7, 4, configs.toString());
+			rebuilt.enableLineCounts();
+			for (int stones = 0; stones <= 4; stones++) {
+				if (configs.openLineCount('X', stones) != rebuilt.openLineCount('X', stones)
+				    || configs.openLineCount('O', stones) != rebuilt.openLineCount('O', stones)) passed = false;
+			}
+	    }
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: finished games score the extremes, and the board with more open
+	    // lines for the computer scores higher.
+	    ThreatEvaluator evaluator = new ThreatEvaluator();
+	    Configurations won = Configurations.fromString(3, 3, "OOOXX X  ");
+	    Configurations lost = Configurations.fromString(3, 3, "XXXOO O  ");
+	    Configurations center = Configurations.fromString(3, 3, "    O    ");
+	    Configurations corner = Configurations.fromString(3, 3, "O        ");
+	    evaluator.prepare(won);
+	    evaluator.prepare(lost);
+	    evaluator.prepare(center);
+	    evaluator.prepare(corner);
+	    if (evaluator.evaluate(won) == evaluator.maxScore() && evaluator.evaluate(lost) == evaluator.minScore()
+	        && evaluator.evaluate(center) > evaluator.evaluate(corner) && evaluator.evaluate(corner) > 0)
+			System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: alpha-beta with the threat evaluator finds the minimax score.
+	    passed = true;
+	    for (int game = 0; game < 30 && passed; game++) {
+			Configurations board = randomPosition(5, 4, random);
+			int depth = 1 + game % 3;
+			Evaluator threat = new ThreatEvaluator();
+			AlphaBetaSearch search = new AlphaBetaSearch(board, board.createTranspositionTable(),
+			    new HeuristicMoveOrdering(5, 4), threat);
+			if (search.iterativeDeepening(depth, 0).getScore() != minimax(board, threat, depth, 'O')) passed = false;
+	    }
+	    if (passed) System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: at depth 0, the threat evaluator blocks the human's open line,
+	    // which the outcome evaluator cannot see.
+	    configs = Configurations.fromString(6, 4, "      " + " XXX  " + " O    " + "   O  " + "      " + "      ");
+	    SearchResult result = new SearchEngine(configs, SearchEngine.SEQUENTIAL, 1, new ThreatEvaluator())
+	        .search(SearchLimits.depth(0));
+	    if (result.getRow() == 1 && (result.getCol() == 0 || result.getCol() == 4))
+			System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed: " + result);
+
+	    // Test 5: the aspiration window of the threat evaluator is wide enough for
+	    // the scores of successive iterations, which change by the weight of a
+	    // strong line: the deepening visits no more nodes than without a window.
+	    configs = Configurations.fromString(7, 4, "                X      O    X                    ");
+	    long outcomeNodes = new SearchEngine(new Configurations(configs)).search(SearchLimits.depth(5)).getNodes();
+	    long threatNodes = new SearchEngine(new Configurations(configs), SearchEngine.SEQUENTIAL, 1,
+	        new ThreatEvaluator()).search(SearchLimits.depth(5)).getNodes();
+	    Evaluator unbounded = new ThreatEvaluator() {
+			@Override
+			public int aspirationWindow() {
+				return 1 << 24;   // Every score is inside it
+			}
+	    };
+	    long unboundedNodes = new SearchEngine(configs, SearchEngine.SEQUENTIAL, 1, unbounded)
+	        .search(SearchLimits.depth(5)).getNodes();
+	    if (threatNodes <= unboundedNodes) System.out.println("   Test 5 succeeded");
+	    else System.out.println("***Test 5 failed");
+	    System.out.println("Nodes to depth 5: outcome " + outcomeNodes + ", threat " + threatNodes
+	                       + ", threat without a window " + unboundedNodes);
+	  }
+
+	  // Plain minimax, the same tree as AlphaBetaSearch with maxLevel = depth
+	  private static int minimax(Configurations configs, Evaluator evaluator, int depth, char symbol) {
+	    int best = symbol == 'O' ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+	    int size = configs.getBoardSize();
+	    for (int square = 0; square < size * size; square++) {
+			if (!configs.squareIsEmpty(square / size, square % size)) continue;
+			configs.savePlay(square / size, square % size, symbol);
+			int score = (configs.isTerminal() || depth == 0) ? evaluator.evaluate(configs)
+			    : minimax(configs, evaluator, depth - 1, symbol == 'O' ? 'X' : 'O');
+			configs.savePlay(square / size, square % size, ' ');
+			best = symbol == 'O' ? Math.max(best, score) : Math.min(best, score);
+	    }
+	    return best;
+	  }
+
+	  // Plays random moves, starting with the human, until it is the computer's turn
+	  // on a board where the game is not over
+	  private static Configurations randomPosition(int size, int toWin, Random random) {
+	    while (true) {
+			Configurations configs = new Configurations(size, toWin, 0);
+			int stones = 2 * random.nextInt(size * size / 3) + 1;
+			char symbol = 'X';
+			for (int i = 0; i < stones && !configs.isTerminal(); i++) {
+				int square;
+				do {
+					square = random.nextInt(size * size);
+				} while (!configs.squareIsEmpty(square / size, square % size));
+				configs.savePlay(square / size, square % size, symbol);
+				symbol = (symbol == 'X') ? 'O' : 'X';
+			}
+			if (!configs.isTerminal() && symbol == 'O') return configs;
+	    }
+	  }
+	}
@@ -0,0 +1,146 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class TestLongDict {
+
+	  /*
+	  ** Test program for the LongHashDictionary class, through its primitive
+	  ** long keys.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    LongHashDictionary dict = new LongHashDictionary(4);
+	    boolean passed;
+
+	    // Test 1: insert, find and remove keys; a key already in the dictionary
+	    // cannot be inserted again, and a key not in it cannot be removed.
+	    passed = true;
+	    try {
+			dict.put(42L, 1);
+			dict.put(-7L, 2);
+			dict.put(Long.MIN_VALUE, 3);
+			try {
+				dict.put(42L, 4);
+				passed = false;
+			} catch (DictionaryException e) {
+				// Expected: the key is already in the dictionary
+			}
+			try {
+				dict.remove(43L);
+				passed = false;
+			} catch (DictionaryException e) {
+				// Expected: the key is not in the dictionary
+			}
+			if (dict.get(42L) != 1 || dict.get(-7L) != 2 || dict.get(Long.MIN_VALUE) != 3 || dict.get(43L) != -1)
+				passed = false;
+			dict.remove(-7L);
+			if (dict.get(-7L) != -1 || dict.get(42L) != 1 || dict.numRecords() != 2) passed = false;
+	    } catch (DictionaryException e) {
+			passed = false;
+	    }
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: key 0, which marks the free slots, is kept apart but behaves
+	    // like any other key.
+	    passed = true;
+	    try {
+			if (dict.get(0L) != -1) passed = false;
+			dict.put(0L, 9);
+			if (dict.get(0L) != 9 || dict.numRecords() != 3) passed = false;
+			try {
+				dict.put(0L, 10);
+				passed = false;
+			} catch (DictionaryException e) {
+				// Expected: the key is already in the dictionary
+			}
+			dict.remove(0L);
+			if (dict.get(0L) != -1 || dict.numRecords() != 2) passed = false;
+			try {
+				dict.remove(0L);
+				passed = false;
+			} catch (DictionaryException e) {
+				// Expected: the key is not in the dictionary
+			}
+			if (dict.get(42L) != 1 || dict.get(Long.MIN_VALUE) != 3) passed = false;
+	    } catch (DictionaryException e) {
+			passed = false;
+	    }
+	    if (passed) System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: keys sharing home slots at the end of a table of 8 slots form a
+	    // cluster wrapping around to its start. Removing each key of the cluster
+	    // in turn, then the others, leaves every surviving key found.
+	    int mask = 7;
+	    long[] cluster = new long[5];
+	    int count = 0;
+	    int[] homes = {6, 6, 6, 7, 0};   // Placed in slots 6, 7, 0, 1 and 2
+	    for (long key = 1; count < cluster.length; key++) {
+			if (home(key, mask) == homes[count]) cluster[count++] = key;
+	    }
+	    passed = true;
+	    for (int first = 0; first < cluster.length && passed; first++) {
+			for (int order = 0; order < 2 && passed; order++) {
+				LongHashDictionary small = new LongHashDictionary(4);
+				for (int k = 0; k < cluster.length; k++) {
+					small.put(cluster[k], k);
+				}
+				boolean[] removed = new boolean[cluster.length];
+				for (int step = 0; step < cluster.length && passed; step++) {
+					// The first key chosen, then the others forwards or backwards
+					int k = (order == 0) ? (first + step) % cluster.length
+					                     : (first - step + cluster.length) % cluster.length;
+					small.remove(cluster[k]);
+					removed[k] = true;
+					for (int j = 0; j < cluster.length; j++) {
+						if (small.get(cluster[j]) != (removed[j] ? -1 : j)) passed = false;
+					}
+					if (small.numRecords() != cluster.length - step - 1) passed = false;
+				}
+			}
+	    }
+	    if (passed) System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: random insertions and removals on a table that starts small and
+	    // is resized several times give the same results as a HashMap.
+	    Random random = new Random(5);
+	    LongHashDictionary grown = new LongHashDictionary(2);
+	    Map<Long, Integer> expected = new HashMap<>();
+	    passed = true;
+	    for (int i = 0; i < 200000 && passed; i++) {
+			long key = random.nextInt(5000) - 100;   // Includes 0, and negative keys
+			boolean present = expected.containsKey(key);
+			boolean removing = random.nextInt(3) == 0;
+			try {
+				if (removing) {
+					grown.remove(key);
+					expected.remove(key);
+				} else {
+					grown.put(key, i);
+					expected.put(key, i);
+				}
+				if (removing != present) passed = false;
+			} catch (DictionaryException e) {
+				if (removing == present) passed = false;   // Only thrown for a missing key, or one already there
+			}
+			if (grown.get(key) != expected.getOrDefault(key, -1)) passed = false;
+	    }
+	    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+			if (grown.get(entry.getKey()) != entry.getValue()) passed = false;
+	    }
+	    if (grown.numRecords() != expected.size()) passed = false;
+	    if (passed) System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed");
+	  }
+
+	  // Home slot of a key in a table of mask + 1 slots, as LongHashDictionary computes it
+	  private static int home(long key, int mask) {
+	    long h = key * 0x9E3779B97F4A7C15L;
+	    return (int) (h ^ (h >>> 32)) & mask;
+	  }
+	}
@@ -0,0 +1,69 @@
+public class TestMcts {
+
+	  /*
+	  ** Test program for the MctsSearch class and the MCTS mode of SearchEngine.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    boolean passed;
+
+	    // Test 1: the search completes the computer's line on a large board.
+	    Configurations configs = Configurations.fromString(9, 4,
+	        "         " + "  X      " + "  X  OOO " + "  X      " + "         "
+	        + "         " + "         " + "         " + "         ");
+	    MctsSearch search = new MctsSearch(configs, 1);
+	    PosPlay play = search.search(5000, 0);
+	    if (play.getRow() == 2 && (play.getCol() == 4 || play.getCol() == 8) && search.getPlayouts() == 5000)
+			System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed: " + play.getRow() + "," + play.getCol());
+
+	    // Test 2: with nothing to complete, the search blocks the human's line,
+	    // and leaves the board unchanged. A single thread makes the search
+	    // repeatable: a second search finds the same move and score.
+	    String board = "         " + "  X      " + "  X      " + "  X    O " + "         "
+	                   + "      O  " + "         " + "         " + "         ";
+	    configs = Configurations.fromString(9, 4, board);
+	    search = new MctsSearch(configs, 1);
+	    play = search.search(20000, 0);
+	    PosPlay again = search.search(20000, 0);
+	    if (play.getCol() == 2 && (play.getRow() == 0 || play.getRow() == 4) && configs.toString().equals(board)
+	        && again.getRow() == play.getRow() && again.getCol() == play.getCol() && again.getScore() == play.getScore())
+			System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed: " + play.getRow() + "," + play.getCol());
+
+	    // Test 3: several threads growing the same tree leave the board unchanged
+	    // and play an empty square with a mean result between a loss and a win,
+	    // whatever the order they run in. The playouts still running when the
+	    // budget runs out are finished, so each thread after the first may add one.
+	    passed = true;
+	    search = new MctsSearch(configs, 3);
+	    for (int trial = 0; trial < 5 && passed; trial++) {
+			play = search.search(5000, 0);
+			if (!configs.toString().equals(board) || play.getRow() < 0
+			    || !configs.squareIsEmpty(play.getRow(), play.getCol())
+			    || play.getScore() < 0 || play.getScore() > 1000
+			    || search.getPlayouts() < 5000 || search.getPlayouts() > 5002 || search.getTreeDepth() < 1)
+				passed = false;
+	    }
+	    search.shutdown();
+	    if (passed) System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: a time budget ends the search, and the engine reports the playouts.
+	    passed = true;
+	    configs = new Configurations(15, 5, 0);
+	    configs.setCandidateRadius(2);
+	    configs.savePlay(7, 7, 'X');
+	    SearchEngine engine = new SearchEngine(configs, SearchEngine.MCTS, 2);
+	    SearchResult result = engine.search(new SearchLimits(0, 0, 300));
+	    engine.shutdown();
+	    if (result.getTimeMillis() < 300 || result.getTimeMillis() > 1000 || result.getNodes() == 0
+	        || result.wasStopped() || !configs.squareIsEmpty(result.getRow(), result.getCol())) passed = false;
+	    if (passed) System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed: " + result);
+	    System.out.println("15x15: " + result.getNodesPerSecond() + " playouts per second, tree depth "
+	                       + result.getDepth());
+	  }
+	}
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestOpeningBook {
+
+	  /*
+	  ** Test program for the OpeningBook class.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) throws IOException {
+	  // **************************************
+	    boolean passed;
+	    Path file = Files.createTempFile("book-4-3", ".bin");
+	    try {
+			// Test 1: the book holds the boards after the human's first two moves,
+			// up to symmetry, and nothing later.
+			int count = OpeningBook.build(4, 3, 2, 16, "outcome", file);
+			OpeningBook book = OpeningBook.open(file);
+			Configurations configs = new Configurations(4, 3, 0);
+			configs.savePlay(0, 0, 'X');
+			configs.savePlay(3, 3, 'O');
+			configs.savePlay(3, 2, 'X');
+			configs.savePlay(0, 1, 'O');
+			configs.savePlay(1, 1, 'X');
+			if (count == book.size() && count > 3 && book.lookup(new Configurations(4, 3, 0)) == null
+			    && book.lookup(configs) == null && book.getDepth() == 16)
+				System.out.println("   Test 1 succeeded");
+			else System.out.println("***Test 1 failed: " + count);
+
+			// Test 2: for every first move of the human, in every orientation, the
+			// book move is on an empty square and keeps the score of the board,
+			// as the solver proves.
+			passed = true;
+			for (int square = 0; square < 16 && passed; square++) {
+				configs = new Configurations(4, 3, 0);
+				configs.savePlay(square / 4, square % 4, 'X');
+				PosPlay play = book.lookup(configs);
+				if (play == null || !configs.squareIsEmpty(play.getRow(), play.getCol())) {
+					passed = false;
+					break;
+				}
+				int expected = new SearchEngine(new Configurations(configs)).search(SearchLimits.depth(16)).getScore();
+				configs.savePlay(play.getRow(), play.getCol(), 'O');
+				int reply = new ProofNumberSearch(configs, 1 << 20).solve('X', 0);
+				int score = reply == ProofNumberSearch.LOSS ? 3 : reply == ProofNumberSearch.DRAW ? 2 : 0;
+				if (play.getScore() != expected || score != expected) passed = false;
+			}
+			if (passed) System.out.println("   Test 2 succeeded");
+			else System.out.println("***Test 2 failed");
+
+			// Test 3: an engine with the book plays its moves without searching.
+			configs = new Configurations(4, 3, 0);
+			configs.savePlay(1, 2, 'X');
+			SearchEngine engine = new SearchEngine(configs);
+			engine.setOpeningBook(book);
+			SearchResult result = engine.search(SearchLimits.depth(16));
+			PosPlay play = book.lookup(configs);
+			if (result.getNodes() == 0 && result.getRow() == play.getRow() && result.getCol() == play.getCol())
+				System.out.println("   Test 3 succeeded");
+			else System.out.println("***Test 3 failed");
+
+			// Test 4: the book records the evaluator it was searched with, and an
+			// engine scoring its boards with another one searches instead.
+			engine = new SearchEngine(configs, SearchEngine.SEQUENTIAL, 1, new ThreatEvaluator());
+			engine.setOpeningBook(book);
+			result = engine.search(SearchLimits.depth(4));
+			if (book.getEvaluatorName().equals("outcome") && book.covers(configs, new OutcomeEvaluator())
+			    && !book.covers(configs, new ThreatEvaluator()) && result.getNodes() > 0)
+				System.out.println("   Test 4 succeeded");
+			else System.out.println("***Test 4 failed");
+	    } finally {
+			Files.deleteIfExists(file);
+	    }
+	  }
+	}
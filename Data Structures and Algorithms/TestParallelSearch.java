@@ -0,0 +1,179 @@
+import java.util.Random;
+
+public class TestParallelSearch {
+
+	  /*
+	  ** Test program for the ParallelSearch and LazySmpSearch classes. Checks that
+	  ** the parallel searches find the same results as the sequential search, and
+	  ** reports their speedup.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    int threads = Runtime.getRuntime().availableProcessors();
+	    if (args.length > 0) threads = Integer.parseInt(args[0]);
+	    int[][] boards = {{3, 3, 8}, {4, 3, 5}, {4, 4, 5}, {5, 4, 3}, {6, 4, 2}};
+	    Random random = new Random(251);
+	    boolean passed;
+
+	    // Test 1: parallel and sequential searches to the same depth find the
+	    // same score and the same play.
+	    passed = true;
+	    for (int[] b : boards) {
+			for (int game = 0; game < 10 && passed; game++) {
+				Configurations configs = randomPosition(b[0], b[1], random);
+				PosPlay sequential = sequentialSearch(configs, b[2]);
+				PosPlay parallel = parallelSearch(configs, b[2], threads);
+				if (!samePlay(sequential, parallel)) {
+					System.out.println("Different plays on " + b[0] + "x" + b[0] + " board");
+					passed = false;
+				}
+			}
+	    }
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: repeated parallel searches of the same position find the same play.
+	    passed = true;
+	    Configurations configs = randomPosition(5, 4, random);
+	    PosPlay first = parallelSearch(configs, 4, threads);
+	    for (int run = 0; run < 5; run++) {
+			if (!samePlay(first, parallelSearch(configs, 4, threads))) passed = false;
+	    }
+	    if (passed) System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: the board is left unchanged by the search.
+	    Configurations before = new Configurations(configs);
+	    parallelSearch(configs, 4, threads);
+	    if (before.getHashKey() == configs.getHashKey() && before.emptySquareCount() == configs.emptySquareCount())
+			System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: Lazy SMP and sequential iterative deepening to the end of the
+	    // game find the same score. The plays may differ between equal moves.
+	    passed = true;
+	    for (int game = 0; game < 20 && passed; game++) {
+			Configurations board = randomPosition(game < 10 ? 3 : 4, 3, random);
+			int end = board.emptySquareCount();
+			PosPlay sequential = sequentialDeepening(board, end);
+			PosPlay smp = lazySmpDeepening(board, end, threads);
+			if (sequential.getScore() != smp.getScore()
+			    || !board.squareIsEmpty(smp.getRow(), smp.getCol())) {
+				System.out.println("Different scores on position " + game);
+				passed = false;
+			}
+	    }
+	    if (passed) System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed");
+
+	    // Test 5: the board is left unchanged by the Lazy SMP search.
+	    before = new Configurations(configs);
+	    lazySmpDeepening(configs, 4, threads);
+	    if (before.getHashKey() == configs.getHashKey() && before.emptySquareCount() == configs.emptySquareCount())
+			System.out.println("   Test 5 succeeded");
+	    else System.out.println("***Test 5 failed");
+
+	    // Test 6: a parallel search kept along a game, whose threads keep their
+	    // boards between searches, finds the score of a sequential search at every
+	    // move. The plays may differ between equal moves, since its table is not new.
+	    passed = true;
+	    for (int game = 0; game < 5 && passed; game++) {
+			Configurations board = new Configurations(5, 4, 0);
+			ParallelSearch search = new ParallelSearch(board, board.createTranspositionTable(), threads);
+			while (!board.isTerminal() && passed) {
+				int square;
+				do {
+					square = random.nextInt(25);
+				} while (!board.squareIsEmpty(square / 5, square % 5));
+				board.savePlay(square / 5, square % 5, 'X');
+				if (board.isTerminal()) break;
+				PosPlay parallel = search.search(3);
+				if (sequentialSearch(new Configurations(board), 3).getScore() != parallel.getScore()
+				    || !board.squareIsEmpty(parallel.getRow(), parallel.getCol())) passed = false;
+				board.savePlay(parallel.getRow(), parallel.getCol(), 'O');
+			}
+			search.shutdown();
+	    }
+	    if (passed) System.out.println("   Test 6 succeeded");
+	    else System.out.println("***Test 6 failed");
+
+	    // Speedup of the parallel search over the sequential search, after one
+	    // untimed run of each so that both are compiled
+	    configs = new Configurations(6, 4, 6);
+	    configs.savePlay(2, 3, 'X');
+	    sequentialSearch(configs, 6);
+	    parallelSearch(configs, 6, threads);
+	    long start = System.nanoTime();
+	    sequentialSearch(configs, 6);
+	    long sequentialTime = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    parallelSearch(configs, 6, threads);
+	    long parallelTime = System.nanoTime() - start;
+	    System.out.println("Sequential: " + sequentialTime / 1000000 + " ms, parallel with "
+	                       + threads + " threads: " + parallelTime / 1000000 + " ms, speedup "
+	                       + String.format("%.2f", (double) sequentialTime / parallelTime));
+
+	    sequentialDeepening(configs, 6);
+	    lazySmpDeepening(configs, 6, threads);
+	    start = System.nanoTime();
+	    sequentialDeepening(configs, 6);
+	    sequentialTime = System.nanoTime() - start;
+	    start = System.nanoTime();
+	    lazySmpDeepening(configs, 6, threads);
+	    long smpTime = System.nanoTime() - start;
+	    System.out.println("Sequential deepening: " + sequentialTime / 1000000 + " ms, Lazy SMP with "
+	                       + threads + " threads: " + smpTime / 1000000 + " ms, speedup "
+	                       + String.format("%.2f", (double) sequentialTime / smpTime));
+	  }
+
+	  // Plays random moves, starting with the human, until it is the computer's turn
+	  // on a board where the game is not over
+	  private static Configurations randomPosition(int size, int toWin, Random random) {
+	    while (true) {
+			Configurations configs = new Configurations(size, toWin, 0);
+			int stones = 2 * random.nextInt(size * size / 2) + 1;
+			char symbol = 'X';
+			for (int i = 0; i < stones && !configs.isTerminal(); i++) {
+				int square;
+				do {
+					square = random.nextInt(size * size);
+				} while (!configs.squareIsEmpty(square / size, square % size));
+				configs.savePlay(square / size, square % size, symbol);
+				symbol = (symbol == 'X') ? 'O' : 'X';
+			}
+			if (!configs.isTerminal() && symbol == 'O') return configs;
+	    }
+	  }
+
+	  private static PosPlay sequentialSearch(Configurations configs, int depth) {
+	    AlphaBetaSearch search = new AlphaBetaSearch(configs, configs.createTranspositionTable(),
+	        new HeuristicMoveOrdering(configs.getBoardSize(), configs.getLengthToWin()));
+	    return search.search(depth);
+	  }
+
+	  private static PosPlay parallelSearch(Configurations configs, int depth, int threads) {
+	    ParallelSearch search = new ParallelSearch(configs, configs.createTranspositionTable(), threads);
+	    PosPlay play = search.search(depth);
+	    search.shutdown();
+	    return play;
+	  }
+
+	  private static PosPlay sequentialDeepening(Configurations configs, int depth) {
+	    AlphaBetaSearch search = new AlphaBetaSearch(configs, configs.createTranspositionTable(),
+	        new HeuristicMoveOrdering(configs.getBoardSize(), configs.getLengthToWin()));
+	    return search.iterativeDeepening(depth, 0);
+	  }
+
+	  private static PosPlay lazySmpDeepening(Configurations configs, int depth, int threads) {
+	    LazySmpSearch search = new LazySmpSearch(configs, configs.createTranspositionTable(), threads);
+	    PosPlay play = search.iterativeDeepening(depth, 0);
+	    search.shutdown();
+	    return play;
+	  }
+
+	  private static boolean samePlay(PosPlay a, PosPlay b) {
+	    return a.getScore() == b.getScore() && a.getRow() == b.getRow() && a.getCol() == b.getCol();
+	  }
+	}
@@ -0,0 +1,101 @@
+import java.util.Random;
+
+public class TestProofSearch {
+
+	  /*
+	  ** Test program for the ProofNumberSearch class: its results must be those
+	  ** of an alpha-beta search to the end of the game.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) throws InterruptedException {
+	  // **************************************
+	    Random random = new Random(11);
+	    boolean passed;
+
+	    // Test 1: the empty 3x3 board is a draw, with a move that keeps it so.
+	    Configurations configs = new Configurations(3, 3, 0);
+	    ProofNumberSearch solver = new ProofNumberSearch(configs, 1 << 20);
+	    int result = solver.solve('O', 0);
+	    int move = solver.getBestMove();
+	    if (result == ProofNumberSearch.DRAW && move >= 0 && configs.toString().equals("         "))
+			System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed: " + result);
+
+	    // Test 2: on random boards the solver agrees with alpha-beta, and a
+	    // winning or drawing move keeps the result.
+	    passed = true;
+	    long proofNodes = 0;
+	    long searchNodes = 0;
+	    for (int game = 0; game < 40 && passed; game++) {
+			configs = randomPosition(4, 3, random);
+			solver = new ProofNumberSearch(configs, 1 << 20);
+			result = solver.solve('O', 0);
+			proofNodes += solver.getNodes();
+			AlphaBetaSearch search = new AlphaBetaSearch(configs, configs.createTranspositionTable(),
+			    new HeuristicMoveOrdering(4, 3));
+			int score = search.search(configs.emptySquareCount()).getScore();
+			searchNodes += search.getNodes();
+			int expected = score == 3 ? ProofNumberSearch.WIN : score == 0 ? ProofNumberSearch.LOSS
+			               : ProofNumberSearch.DRAW;
+			if (result != expected) passed = false;
+			move = solver.getBestMove();
+			if (result != ProofNumberSearch.LOSS) {
+				configs.savePlay(move / 4, move % 4, 'O');
+				if (!configs.isTerminal()) {
+					int reply = new ProofNumberSearch(configs, 1 << 20).solve('X', 0);
+					if (reply != (result == ProofNumberSearch.WIN ? ProofNumberSearch.LOSS : ProofNumberSearch.DRAW))
+						passed = false;
+				} else if (configs.evalBoard() != score) passed = false;
+			}
+	    }
+	    if (passed) System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: a small node budget leaves an open board undecided.
+	    configs = new Configurations(5, 4, 0);
+	    solver = new ProofNumberSearch(configs, 1 << 20);
+	    if (solver.solve('O', 1000) == ProofNumberSearch.UNKNOWN && solver.getNodes() <= 1001)
+			System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: without a node budget, a table too small for the proof makes the
+	    // solver give up rather than search forever, and one large enough solves
+	    // the board. The search runs on another thread, which must end in time.
+	    passed = true;
+	    for (long tableBytes : new long[] {40, 640, 2560, 10240}) {
+			Configurations small = new Configurations(3, 3, 0);
+			ProofNumberSearch smallSolver = new ProofNumberSearch(small, tableBytes);
+			int[] outcome = {0};
+			Thread thread = new Thread(() -> outcome[0] = smallSolver.solve('O', 0));
+			thread.setDaemon(true);
+			thread.start();
+			thread.join(10000);
+			int expected = (tableBytes < 5120) ? ProofNumberSearch.UNKNOWN : ProofNumberSearch.DRAW;
+			if (thread.isAlive() || outcome[0] != expected || !small.toString().equals("         ")) passed = false;
+	    }
+	    if (passed) System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed");
+
+	    System.out.println("Nodes on 4x4 boards: df-pn " + proofNodes + ", alpha-beta " + searchNodes);
+	  }
+
+	  // Plays random moves, starting with the human, until it is the computer's turn
+	  // on a board where the game is not over
+	  private static Configurations randomPosition(int size, int toWin, Random random) {
+	    while (true) {
+			Configurations configs = new Configurations(size, toWin, 0);
+			int stones = 2 * random.nextInt(size * size / 3) + 1;
+			char symbol = 'X';
+			for (int i = 0; i < stones && !configs.isTerminal(); i++) {
+				int square;
+				do {
+					square = random.nextInt(size * size);
+				} while (!configs.squareIsEmpty(square / size, square % size));
+				configs.savePlay(square / size, square % size, symbol);
+				symbol = (symbol == 'X') ? 'O' : 'X';
+			}
+			if (!configs.isTerminal() && symbol == 'O') return configs;
+	    }
+	  }
+	}
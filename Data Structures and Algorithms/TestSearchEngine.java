@@ -0,0 +1,246 @@
+public class TestSearchEngine {
+
+	  /*
+	  ** Test program for the SearchEngine class, run without any user interface.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) throws InterruptedException {
+	  // **************************************
+	    boolean passed;
+
+	    // Test 1: a board is read from its compact form and written back.
+	    String board = "X O  X O ";
+	    Configurations configs = Configurations.fromString(3, 3, board);
+	    if (configs.toString().equals(board) && configs.emptySquareCount() == 5)
+			System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: the engine completes the computer's line.
+	    configs = Configurations.fromString(4, 3, "OO  XX  X       ");
+	    SearchEngine engine = new SearchEngine(configs);
+	    SearchResult result = engine.search(SearchLimits.depth(4));
+	    if (result.getRow() == 0 && result.getCol() == 2 && result.getScore() == 3)
+			System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed: " + result);
+
+	    // Test 3: a node limit stops a deep search after its first iteration.
+	    configs = Configurations.fromString(6, 4, "              X                     ");
+	    engine = new SearchEngine(configs);
+	    result = engine.search(new SearchLimits(20, 5000, 0));
+	    if (result.wasStopped() && result.getDepth() >= 0 && result.getDepth() < 20
+	        && configs.squareIsEmpty(result.getRow(), result.getCol()))
+			System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed: " + result);
+
+	    // Test 4: every mode finds the same score for a position searched to the
+	    // end of the game, and leaves the board unchanged.
+	    passed = true;
+	    String position = "X   O   X  O    ";
+	    int[] modes = {SearchEngine.SEQUENTIAL, SearchEngine.ROOT_SPLIT, SearchEngine.LAZY_SMP};
+	    int score = -1;
+	    for (int mode : modes) {
+			configs = Configurations.fromString(4, 3, position);
+			engine = new SearchEngine(configs, mode, 3);
+			result = engine.search(SearchLimits.depth(16));
+			engine.shutdown();
+			if (score == -1) score = result.getScore();
+			if (result.getScore() != score || result.wasStopped() || !configs.toString().equals(position))
+				passed = false;
+	    }
+	    if (passed) System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed");
+
+	    // Test 5: a background search reports each iteration, then its result,
+	    // which is the same as that of a search on the calling thread.
+	    configs = Configurations.fromString(4, 3, position);
+	    engine = new SearchEngine(configs);
+	    Recorder recorder = new Recorder();
+	    SearchResult background = engine.searchAsync(SearchLimits.depth(5), recorder, Runnable::run).get();
+	    SearchResult direct = new SearchEngine(Configurations.fromString(4, 3, position)).search(SearchLimits.depth(5));
+	    if (recorder.iterations == background.getDepth() + 1 && recorder.result == background
+	        && background.getScore() == direct.getScore() && background.getRow() == direct.getRow()
+	        && background.getCol() == direct.getCol())
+			System.out.println("   Test 5 succeeded");
+	    else System.out.println("***Test 5 failed");
+
+	    // Test 6: "move now" ends a long search with the best move found so far.
+	    configs = Configurations.fromString(7, 5, "                        X                        ");
+	    engine = new SearchEngine(configs);
+	    recorder = new Recorder();
+	    SearchTask task = engine.searchAsync(SearchLimits.depth(40), recorder, Runnable::run);
+	    Thread.sleep(200);
+	    task.moveNow();
+	    result = task.get();
+	    if (result.wasStopped() && recorder.result == result && configs.squareIsEmpty(result.getRow(), result.getCol()))
+			System.out.println("   Test 6 succeeded");
+	    else System.out.println("***Test 6 failed: " + result);
+
+	    // Test 7: a cancelled search does not report its result, and the engine
+	    // can search again afterwards.
+	    recorder = new Recorder();
+	    task = engine.searchAsync(SearchLimits.depth(40), recorder, Runnable::run);
+	    task.cancel();
+	    task.get();
+	    result = engine.searchAsync(SearchLimits.depth(1), new Recorder(), Runnable::run).get();
+	    if (task.isCancelled() && recorder.result == null && !result.wasStopped())
+			System.out.println("   Test 7 succeeded");
+	    else System.out.println("***Test 7 failed");
+	    engine.shutdown();
+
+	    // Test 8: when the human plays the expected reply, the search returns the
+	    // result of the ponder search, which is that of a search from scratch.
+	    passed = true;
+	    configs = Configurations.fromString(5, 4, "      X                  ");
+	    engine = new SearchEngine(configs);
+	    SearchLimits limits = SearchLimits.depth(4);
+	    result = engine.search(limits);
+	    configs.savePlay(result.getRow(), result.getCol(), 'O');
+	    int reply = engine.startPondering(limits);
+	    if (reply < 0) passed = false;
+	    else {
+			Thread.sleep(500);
+			configs.savePlay(reply / 5, reply % 5, 'X');
+			String played = configs.toString();
+			result = engine.searchAsync(limits, new Recorder(), Runnable::run).get();
+			direct = new SearchEngine(Configurations.fromString(5, 4, played)).search(limits);
+			if (engine.getPonderHits() != 1 || result.getScore() != direct.getScore()
+			    || !configs.toString().equals(played)) passed = false;
+	    }
+	    if (passed) System.out.println("   Test 8 succeeded");
+	    else System.out.println("***Test 8 failed");
+
+	    // Test 9: when the human plays another move, the ponder search is dropped,
+	    // and has ended before the search of the board starts. A deep ponder
+	    // search is still running when the human plays; the search then leaves
+	    // the board as played and finds the score of a search from scratch.
+	    configs.savePlay(result.getRow(), result.getCol(), 'O');
+	    reply = engine.startPondering(limits);
+	    int other = 0;
+	    while (other == reply || !configs.squareIsEmpty(other / 5, other % 5)) other++;
+	    configs.savePlay(other / 5, other % 5, 'X');
+	    String played = configs.toString();
+	    result = engine.search(limits);
+	    direct = new SearchEngine(Configurations.fromString(5, 4, played)).search(limits);
+	    passed = engine.getPonderHits() == 1 && result.getScore() == direct.getScore() && configs.toString().equals(played);
+	    engine.shutdown();
+	    for (int trial = 0; trial < 10 && passed; trial++) {
+			configs = Configurations.fromString(5, 4, "      X                  ");
+			engine = new SearchEngine(configs);
+			result = engine.search(limits);
+			configs.savePlay(result.getRow(), result.getCol(), 'O');
+			reply = engine.startPondering(SearchLimits.depth(20));
+			other = 24 - trial;
+			while (other == reply || !configs.squareIsEmpty(other / 5, other % 5)) other--;
+			configs.savePlay(other / 5, other % 5, 'X');
+			played = configs.toString();
+			result = engine.search(limits);
+			direct = new SearchEngine(Configurations.fromString(5, 4, played)).search(limits);
+			if (!configs.toString().equals(played) || result.wasStopped() || result.getScore() != direct.getScore()
+			    || result.getDepth() != direct.getDepth() || !configs.squareIsEmpty(result.getRow(), result.getCol()))
+				passed = false;
+			engine.shutdown();
+	    }
+	    if (passed) System.out.println("   Test 9 succeeded");
+	    else System.out.println("***Test 9 failed");
+
+	    // Test 10: with a candidate radius, the moves kept up to date by savePlay
+	    // are those of a board built from scratch, and a search on a large board
+	    // only plays near the stones.
+	    passed = true;
+	    java.util.Random random = new java.util.Random(17);
+	    configs = new Configurations(12, 5, 0);
+	    configs.setCandidateRadius(2);
+	    int[] moves = new int[144];
+	    int[] expected = new int[144];
+	    for (int i = 0; i < 300 && passed; i++) {
+			int square = random.nextInt(144);
+			char symbol = configs.squareIsEmpty(square / 12, square % 12) ? (i % 2 == 0 ? 'X' : 'O') : ' ';
+			configs.savePlay(square / 12, square % 12, symbol);
+			Configurations rebuilt = Configurations.fromString(12, 5, configs.toString());
+			rebuilt.setCandidateRadius(2);
+			int count = configs.candidateMoves(moves);
+			if (count != rebuilt.candidateMoves(expected)) passed = false;
+			for (int k = 0; k < count && passed; k++) {
+				if (moves[k] != expected[k]) passed = false;
+			}
+	    }
+	    configs = new Configurations(12, 5, 0);
+	    passed = passed && configs.candidateMoves(moves) == 144;
+	    configs.setCandidateRadius(2);
+	    configs.savePlay(5, 6, 'X');
+	    passed = passed && configs.candidateMoves(moves) == 24;
+	    result = new SearchEngine(configs).search(SearchLimits.depth(3));
+	    if (Math.abs(result.getRow() - 5) > 2 || Math.abs(result.getCol() - 6) > 2) passed = false;
+	    if (passed) System.out.println("   Test 10 succeeded");
+	    else System.out.println("***Test 10 failed");
+
+	    // Test 11: a ponder search without a depth it can reach in time is not
+	    // wasted on a hit: the search deepens from the iteration it completed,
+	    // deeper than a search with the same node budget starting over.
+	    passed = true;
+	    SearchLimits budget = new SearchLimits(30, 2000, 0);
+	    configs = Configurations.fromString(7, 4, "                        X                        ");
+	    engine = new SearchEngine(configs);
+	    result = engine.search(budget);
+	    configs.savePlay(result.getRow(), result.getCol(), 'O');
+	    reply = engine.startPondering(budget);
+	    if (reply < 0) passed = false;
+	    else {
+			Thread.sleep(1000);
+			configs.savePlay(reply / 7, reply % 7, 'X');
+			played = configs.toString();
+			result = engine.search(budget);
+			direct = new SearchEngine(Configurations.fromString(7, 4, played)).search(budget);
+			if (engine.getPonderHits() != 1 || result.getDepth() <= direct.getDepth()
+			    || !configs.toString().equals(played) || !configs.squareIsEmpty(result.getRow(), result.getCol()))
+				passed = false;
+			System.out.println("7x7 ponder hit: depth " + result.getDepth() + ", without pondering: depth "
+			                   + direct.getDepth());
+	    }
+	    engine.shutdown();
+	    if (passed) System.out.println("   Test 11 succeeded");
+	    else System.out.println("***Test 11 failed");
+
+	    // Test 12: the requests of a task only reach its own search. Cancelling a
+	    // finished task leaves the running search alone, and a task cancelled as
+	    // it starts never runs long, wherever its search was at that moment.
+	    passed = true;
+	    configs = Configurations.fromString(6, 4, "              X                     ");
+	    engine = new SearchEngine(configs);
+	    SearchTask finished = engine.searchAsync(SearchLimits.depth(1), new Recorder(), Runnable::run);
+	    finished.get();
+	    task = engine.searchAsync(SearchLimits.depth(5), new Recorder(), Runnable::run);
+	    Thread.sleep(20);
+	    finished.cancel();
+	    finished.moveNow();
+	    result = task.get();
+	    if (result.wasStopped() || result.getDepth() != 5) passed = false;
+	    for (int trial = 0; trial < 50 && passed; trial++) {
+			task = engine.searchAsync(SearchLimits.depth(40), new Recorder(), Runnable::run);
+			if (trial % 2 == 1) Thread.sleep(trial % 7);
+			long start = System.nanoTime();
+			task.cancel();
+			task.get();
+			if (System.nanoTime() - start > 2000000000L) passed = false;
+	    }
+	    engine.shutdown();
+	    if (passed && configs.toString().equals("              X                     "))
+			System.out.println("   Test 12 succeeded");
+	    else System.out.println("***Test 12 failed");
+	  }
+
+	  // Listener remembering what it was told
+	  private static class Recorder implements SearchListener {
+	    int iterations;
+	    SearchResult result;
+
+	    public void progress(SearchResult partial) {
+			iterations++;
+	    }
+
+	    public void done(SearchResult result) {
+			this.result = result;
+	    }
+	  }
+	}
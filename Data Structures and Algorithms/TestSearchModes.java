@@ -0,0 +1,99 @@
+import java.util.Random;
+
+public class TestSearchModes {
+
+	  /*
+	  ** Test program for the search modes that replace plain alpha-beta at the
+	  ** root: they must find the same score, and report how many nodes they visit.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    Random random = new Random(7);
+	    int[][] boards = {{3, 3, 8}, {4, 3, 6}, {4, 4, 5}, {5, 4, 4}};
+	    boolean passed;
+
+	    // Test 1: PVS, MTD(f) and alpha-beta find the same score with the outcome evaluator.
+	    passed = true;
+	    for (int[] b : boards) {
+			for (int game = 0; game < 15 && passed; game++) {
+				Configurations configs = randomPosition(b[0], b[1], random);
+				int expected = search(configs, SearchEngine.SEQUENTIAL, "outcome", b[2]).getScore();
+				if (search(configs, SearchEngine.PVS, "outcome", b[2]).getScore() != expected) passed = false;
+				if (search(configs, SearchEngine.MTDF, "outcome", b[2]).getScore() != expected) passed = false;
+			}
+	    }
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: the same with the threat evaluator, whose scores are spread out.
+	    passed = true;
+	    for (int[] b : boards) {
+			for (int game = 0; game < 15 && passed; game++) {
+				Configurations configs = randomPosition(b[0], b[1], random);
+				int depth = Math.min(b[2], 4);
+				int expected = search(configs, SearchEngine.SEQUENTIAL, "threat", depth).getScore();
+				if (search(configs, SearchEngine.PVS, "threat", depth).getScore() != expected) passed = false;
+				if (search(configs, SearchEngine.MTDF, "threat", depth).getScore() != expected) passed = false;
+			}
+	    }
+	    if (passed) System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: the play MTD(f) returns reaches its score.
+	    passed = true;
+	    for (int game = 0; game < 20 && passed; game++) {
+			Configurations configs = randomPosition(4, 3, random);
+			SearchResult result = search(configs, SearchEngine.MTDF, "outcome", 6);
+			configs.savePlay(result.getRow(), result.getCol(), 'O');
+			if (!configs.isTerminal()) {
+				// The human's best reply to the play, searched from the human's side
+				int worst = Integer.MAX_VALUE;
+				for (int square = 0; square < 16; square++) {
+					if (!configs.squareIsEmpty(square / 4, square % 4)) continue;
+					configs.savePlay(square / 4, square % 4, 'X');
+					int score = configs.isTerminal() ? configs.evalBoard()
+					    : search(configs, SearchEngine.SEQUENTIAL, "outcome", 4).getScore();
+					configs.savePlay(square / 4, square % 4, ' ');
+					worst = Math.min(worst, score);
+				}
+				if (worst != result.getScore()) passed = false;
+			} else if (configs.evalBoard() != result.getScore()) passed = false;
+	    }
+	    if (passed) System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Nodes visited by each mode on the same boards
+	    Configurations configs = Configurations.fromString(6, 4, "       X    O      X                ");
+	    for (String evaluator : new String[] {"outcome", "threat"}) {
+			System.out.println(evaluator + ": alpha-beta " + search(configs, SearchEngine.SEQUENTIAL, evaluator, 5).getNodes()
+			                   + " nodes, PVS " + search(configs, SearchEngine.PVS, evaluator, 5).getNodes()
+			                   + " nodes, MTD(f) " + search(configs, SearchEngine.MTDF, evaluator, 5).getNodes() + " nodes");
+	    }
+	  }
+
+	  private static SearchResult search(Configurations configs, int mode, String evaluator, int depth) {
+	    SearchEngine engine = new SearchEngine(new Configurations(configs), mode, 1, SearchEngine.createEvaluator(evaluator));
+	    return engine.search(SearchLimits.depth(depth));
+	  }
+
+	  // Plays random moves, starting with the human, until it is the computer's turn
+	  // on a board where the game is not over
+	  private static Configurations randomPosition(int size, int toWin, Random random) {
+	    while (true) {
+			Configurations configs = new Configurations(size, toWin, 0);
+			int stones = 2 * random.nextInt(size * size / 2) + 1;
+			char symbol = 'X';
+			for (int i = 0; i < stones && !configs.isTerminal(); i++) {
+				int square;
+				do {
+					square = random.nextInt(size * size);
+				} while (!configs.squareIsEmpty(square / size, square % size));
+				configs.savePlay(square / size, square % size, symbol);
+				symbol = (symbol == 'X') ? 'O' : 'X';
+			}
+			if (!configs.isTerminal() && symbol == 'O') return configs;
+	    }
+	  }
+	}
@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class TestSolvedDatabase {
+
+	  /*
+	  ** Test program for the SolvedDatabase class: the outcomes it stores must
+	  ** be those found by an alpha-beta search to the end of the game.
+	  */
+
+	  // **************************************
+	  public static void main(String[] args) throws IOException {
+	  // **************************************
+	    Random random = new Random(5);
+	    boolean passed;
+	    Path small = Files.createTempFile("solved-3-3", ".db");
+	    Path large = Files.createTempFile("solved-4-3", ".db");
+	    try {
+			// Test 1: the empty 3x3 board is a draw, and so is the board after
+			// the human's first move.
+			SolvedDatabase.generate(3, 3, small);
+			SolvedDatabase database = SolvedDatabase.open(small);
+			Configurations configs = new Configurations(3, 3, 0);
+			int empty = database.outcome(configs);
+			configs.savePlay(1, 1, 'X');
+			PosPlay play = database.bestPlay(configs);
+			if (empty == SolvedDatabase.DRAW && play.getScore() == 2 && database.covers(configs)
+			    && !database.covers(new Configurations(4, 3, 0)))
+				System.out.println("   Test 1 succeeded");
+			else System.out.println("***Test 1 failed");
+
+			// Test 2: on random 4x4 boards the database gives the score of a search to
+			// the end of the game, and an engine using it plays without searching.
+			passed = true;
+			SolvedDatabase.generate(4, 3, large);
+			database = SolvedDatabase.open(large);
+			for (int game = 0; game < 40 && passed; game++) {
+				configs = randomPosition(4, 3, random);
+				AlphaBetaSearch search = new AlphaBetaSearch(configs, configs.createTranspositionTable(),
+				    new HeuristicMoveOrdering(4, 3));
+				int score = search.search(configs.emptySquareCount()).getScore();
+				play = database.bestPlay(configs);
+				if (play.getScore() != score) passed = false;
+				SearchEngine engine = new SearchEngine(configs);
+				engine.setSolvedDatabase(database);
+				SearchResult result = engine.search(SearchLimits.depth(4));
+				if (result.getNodes() != 0 || result.getRow() != play.getRow() || result.getCol() != play.getCol())
+					passed = false;
+				configs.savePlay(play.getRow(), play.getCol(), 'O');
+				int outcome = database.outcome(configs);
+				if (outcome != (score == 3 ? SolvedDatabase.COMPUTER_WINS : score == 2 ? SolvedDatabase.DRAW
+				                : SolvedDatabase.HUMAN_WINS)) passed = false;
+			}
+			if (passed) System.out.println("   Test 2 succeeded");
+			else System.out.println("***Test 2 failed");
+
+			// Test 3: a file that is not a database is refused.
+			Files.write(small, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+			try {
+				SolvedDatabase.open(small);
+				System.out.println("***Test 3 failed");
+			} catch (IOException e) {
+				System.out.println("   Test 3 succeeded");
+			}
+	    } finally {
+			Files.deleteIfExists(small);
+			Files.deleteIfExists(large);
+	    }
+	  }
+
+	  // Plays random moves, starting with the human, until it is the computer's turn
+	  // on a board where the game is not over
+	  private static Configurations randomPosition(int size, int toWin, Random random) {
+	    while (true) {
+			Configurations configs = new Configurations(size, toWin, 0);
+			int stones = 2 * random.nextInt(size * size / 3) + 1;
+			char symbol = 'X';
+			for (int i = 0; i < stones && !configs.isTerminal(); i++) {
+				int square;
+				do {
+					square = random.nextInt(size * size);
+				} while (!configs.squareIsEmpty(square / size, square % size));
+				configs.savePlay(square / size, square % size, symbol);
+				symbol = (symbol == 'X') ? 'O' : 'X';
+			}
+			if (!configs.isTerminal() && symbol == 'O') return configs;
+	    }
+	  }
+	}
@@ -0,0 +1,137 @@
+public class TestTranspositionTable {
+
+	  /*
+	  ** Test program for the replacement policies and generation aging of the
+	  ** TranspositionTable class. Every table here has a single bucket, so all
+	  ** keys compete for the same BUCKET_SIZE slots.
+	  */
+
+	  private static final long ONE_BUCKET = TranspositionTable.BYTES_PER_SLOT * TranspositionTable.BUCKET_SIZE;
+
+	  // **************************************
+	  public static void main(String[] args) {
+	  // **************************************
+	    TranspositionTable table;
+	    boolean passed;
+
+	    // Test 1: a growing table keeps every entry, and a stored entry reads back
+	    // field by field.
+	    table = new TranspositionTable(2);
+	    passed = true;
+	    for (int key = 1; key <= 1000; key++) {
+			table.store(key, -key, TranspositionTable.LOWER_BOUND, key % 200, key % 50 - 1);
+	    }
+	    for (int key = 1; key <= 1000 && passed; key++) {
+			long entry = table.probe(key);
+			if (entry == TranspositionTable.MISS || TranspositionTable.score(entry) != -key
+			    || TranspositionTable.bound(entry) != TranspositionTable.LOWER_BOUND
+			    || TranspositionTable.depth(entry) != key % 200 || TranspositionTable.move(entry) != key % 50 - 1)
+				passed = false;
+	    }
+	    if (table.numRecords() != 1000 || table.probe(1001) != TranspositionTable.MISS) passed = false;
+	    if (passed) System.out.println("   Test 1 succeeded");
+	    else System.out.println("***Test 1 failed");
+
+	    // Test 2: always-replace gives up the entries of a full bucket in the
+	    // order they were stored, whatever their depth.
+	    table = new TranspositionTable(ONE_BUCKET, TranspositionTable.ALWAYS_REPLACE);
+	    fill(table, 5, 2, 7, 4);
+	    table.store(5, 0, TranspositionTable.EXACT, 9, -1);
+	    table.store(6, 0, TranspositionTable.EXACT, 1, -1);
+	    if (table.getCapacity() == TranspositionTable.BUCKET_SIZE && holds(table, 3, 4, 5, 6) && lacks(table, 1, 2)
+	        && table.getOverwrites() == 2 && table.numRecords() == 4)
+			System.out.println("   Test 2 succeeded");
+	    else System.out.println("***Test 2 failed");
+
+	    // Test 3: depth-preferred gives up the shallowest entry, and drops a new
+	    // entry shallower than all of them.
+	    table = new TranspositionTable(ONE_BUCKET, TranspositionTable.DEPTH_PREFERRED);
+	    fill(table, 5, 2, 7, 4);
+	    table.store(5, 0, TranspositionTable.EXACT, 3, -1);
+	    table.store(6, 0, TranspositionTable.EXACT, 1, -1);
+	    if (holds(table, 1, 3, 4, 5) && lacks(table, 2, 6) && table.getOverwrites() == 1)
+			System.out.println("   Test 3 succeeded");
+	    else System.out.println("***Test 3 failed");
+
+	    // Test 4: two-tier puts an entry at least as deep as the shallowest of
+	    // the first half there, moving that entry to the always-replace second
+	    // half; a shallower entry goes straight to the second half.
+	    table = new TranspositionTable(ONE_BUCKET, TranspositionTable.TWO_TIER);
+	    fill(table, 5, 2, 7, 4);               // Keys 1 and 2 in the first half, 3 and 4 in the second
+	    table.store(5, 0, TranspositionTable.EXACT, 3, -1);   // Replaces key 2, which replaces key 3
+	    passed = holds(table, 1, 2, 4, 5) && lacks(table, 3);
+	    table.store(6, 0, TranspositionTable.EXACT, 1, -1);   // Replaces key 4
+	    if (passed && holds(table, 1, 2, 5, 6) && lacks(table, 3, 4))
+			System.out.println("   Test 4 succeeded");
+	    else System.out.println("***Test 4 failed");
+
+	    // Test 5: after a new search starts, entries of the earlier search are
+	    // replaced first, even when they are deeper, unless a probe has shown
+	    // they are still in use.
+	    table = new TranspositionTable(ONE_BUCKET, TranspositionTable.DEPTH_PREFERRED);
+	    fill(table, 9, 9, 9, 9);
+	    table.newSearch();
+	    table.probe(3);
+	    table.store(5, 0, TranspositionTable.EXACT, 0, -1);
+	    table.store(6, 0, TranspositionTable.EXACT, 0, -1);
+	    table.store(7, 0, TranspositionTable.EXACT, 0, -1);
+	    passed = holds(table, 3, 5, 6, 7) && lacks(table, 1, 2, 4);
+	    table.store(8, 0, TranspositionTable.EXACT, 0, -1);   // Every entry is current: the shallowest goes
+	    if (passed && holds(table, 3, 8) && table.numRecords() == 4)
+			System.out.println("   Test 5 succeeded");
+	    else System.out.println("***Test 5 failed");
+
+	    // Test 6: aging keeps working when the 6-bit generation wraps around. In
+	    // each of 200 searches, four new entries shallower than the old ones fill
+	    // the bucket, and must all be kept: the old entries are the stale ones.
+	    table = new TranspositionTable(ONE_BUCKET, TranspositionTable.DEPTH_PREFERRED);
+	    passed = true;
+	    long key = 1;
+	    for (int search = 0; search < 200 && passed; search++) {
+			table.newSearch();
+			for (int k = 0; k < TranspositionTable.BUCKET_SIZE; k++) {
+				table.store(key + k, 0, TranspositionTable.EXACT, 200 - search, -1);
+			}
+			for (int k = 0; k < TranspositionTable.BUCKET_SIZE; k++) {
+				if (table.probe(key + k) == TranspositionTable.MISS) passed = false;
+			}
+			key += TranspositionTable.BUCKET_SIZE;
+	    }
+	    if (passed) System.out.println("   Test 6 succeeded");
+	    else System.out.println("***Test 6 failed");
+
+	    // Test 7: the counters follow the probes and stores of a single thread.
+	    table = new TranspositionTable(ONE_BUCKET, TranspositionTable.ALWAYS_REPLACE);
+	    fill(table, 1, 1, 1, 1);
+	    table.probe(1);
+	    table.probe(2);
+	    table.probe(9);
+	    table.store(9, 0, TranspositionTable.EXACT, 1, -1);
+	    passed = table.getHits() == 2 && table.getMisses() == 1 && table.getOverwrites() == 1;
+	    table.resetStatistics();
+	    if (passed && table.getHits() == 0 && table.getMisses() == 0 && table.getOverwrites() == 0)
+			System.out.println("   Test 7 succeeded");
+	    else System.out.println("***Test 7 failed");
+	  }
+
+	  // Stores keys 1, 2, ... with the given depths, filling the bucket
+	  private static void fill(TranspositionTable table, int... depths) {
+	    for (int k = 0; k < depths.length; k++) {
+			table.store(k + 1, 0, TranspositionTable.EXACT, depths[k], -1);
+	    }
+	  }
+
+	  private static boolean holds(TranspositionTable table, long... keys) {
+	    for (long key : keys) {
+			if (table.probe(key) == TranspositionTable.MISS) return false;
+	    }
+	    return true;
+	  }
+
+	  private static boolean lacks(TranspositionTable table, long... keys) {
+	    for (long key : keys) {
+			if (table.probe(key) != TranspositionTable.MISS) return false;
+	    }
+	    return true;
+	  }
+	}
@@ -0,0 +1,59 @@
+/**
+ * Evaluator that scores the boards of unfinished games by the potential
+ * winning lines of each player: every run of lengthToWin squares holding
+ * stones of one player only is worth a weight that grows eightfold with each
+ * stone in it, so that a line one stone short of a win outweighs many weaker
+ * ones. The computer's lines count for it and the human's against it. The
+ * counts come from the line counters of Configurations, which savePlay keeps
+ * up to date, so a board is scored in time proportional to lengthToWin.
+ */
+public class ThreatEvaluator implements Evaluator {
+    public static final int WIN = 1 << 30;   // Score of a win of the computer; a loss scores -WIN
+    public static final int DRAW = 0;
+
+    private static final int MAX_WEIGHT = 1 << 20;   // Keeps the weights of long lines from overflowing
+
+    private int[] weights;   // Worth of an open line by number of stones, computed by prepare
+    private int aspirationWindow;   // A stone extending its strongest line in each of the 4 directions
+
+    @Override
+    public void prepare(Configurations configs) {
+        configs.enableLineCounts();
+        int lengthToWin = configs.getLengthToWin();
+        weights = new int[lengthToWin];
+        int weight = 1;
+        for (int stones = 1; stones < lengthToWin; stones++) {
+            weights[stones] = weight;
+            weight = Math.min(weight * 8, MAX_WEIGHT);
+        }
+        aspirationWindow = Math.max(1, 4 * weights[lengthToWin - 1]);
+    }
+
+    @Override
+    public int evaluate(Configurations configs) {
+        if (configs.wins('O')) return WIN;
+        if (configs.wins('X')) return -WIN;
+        if (configs.isDraw()) return DRAW;
+
+        long score = 0;
+        for (int stones = 1; stones < weights.length; stones++) {
+            score += (long) weights[stones] * (configs.openLineCount('O', stones) - configs.openLineCount('X', stones));
+        }
+        return (int) Math.max(-WIN + 1, Math.min(WIN - 1, score));
+    }
+
+    @Override
+    public int minScore() {
+        return -WIN;
+    }
+
+    @Override
+    public int maxScore() {
+        return WIN;
+    }
+
+    @Override
+    public int aspirationWindow() {
+        return aspirationWindow;
+    }
+}
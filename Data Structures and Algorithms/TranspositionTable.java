@@ -0,0 +1,577 @@
+import java.util.Arrays;
+
+/**
+ * Cache of searched board configurations for alpha-beta search. Every entry records
+ * the score found for a configuration, whether that score is exact or only a bound
+ * produced by a cutoff, the remaining depth it was searched to, and the best move.
+ *
+ * An entry is packed into a single long so that the table is made of two flat
+ * arrays (keys and entries) and probing it does not allocate. The packed entry
+ * is decoded with the static accessors of this class.
+ *
+ * The table either grows like a HashDictionary, or is given a fixed byte budget at
+ * construction. A fixed table never resizes: it is split into buckets of
+ * BUCKET_SIZE slots, and when a bucket is full a replacement policy picks the
+ * entry to give up.
+ *
+ * The table is meant to be kept for a whole game. Every entry is stamped with the
+ * generation of the search that stored it, and newSearch starts a new generation,
+ * so entries left over from earlier moves are the first to be replaced.
+ *
+ * A fixed-size table can be shared by several search threads without locks. Each
+ * slot keeps its key XORed with its entry, and a probe only accepts an entry if
+ * the two XOR back to the key it looks for. A reader that sees a slot halfway
+ * through being rewritten by another thread therefore gets a miss, not a wrong
+ * entry. The statistics are not synchronized and are only approximate when the
+ * table is shared. A growing table must not be shared, since it resizes in place.
+ */
+public class TranspositionTable {
+    /** Bound type of a score that is the exact value of the configuration. */
+    public static final int EXACT = 1;
+    /** Bound type of a score that the value of the configuration is at least. */
+    public static final int LOWER_BOUND = 2;
+    /** Bound type of a score that the value of the configuration is at most. */
+    public static final int UPPER_BOUND = 3;
+
+    /** Value returned by probe when the configuration is not in the table. */
+    public static final long MISS = 0L;
+
+    /** Replacement policy: a new entry always replaces the oldest one in its bucket. */
+    public static final int ALWAYS_REPLACE = 1;
+    /** Replacement policy: a new entry replaces the shallowest one, if it is at least as deep. */
+    public static final int DEPTH_PREFERRED = 2;
+    /** Replacement policy: half of each bucket is depth-preferred and half always-replace. */
+    public static final int TWO_TIER = 3;
+
+    /** Number of slots in a bucket of a fixed-size table. */
+    public static final int BUCKET_SIZE = 4;
+
+    /** Number of bytes used by one slot (its key and its packed entry). */
+    public static final int BYTES_PER_SLOT = 16;
+
+    private long[] keys;    // Hash key of each slot, XORed with the entry of the slot
+    private long[] entries; // Packed entry of each slot, MISS marks a free slot
+
+    private int mask;       // Capacity - 1, capacity is always a power of two
+
+    private int recordCount;
+
+    private final boolean fixedSize;   // True if the table has a byte budget and never grows
+    private final int replacementPolicy;
+    private int[] nextVictim;          // Round-robin position of each bucket for always-replace
+
+    private long hits;
+    private long misses;
+    private long overwrites;           // Entries of other configurations given up to make room
+
+    private int generation;            // Generation of the current search, stamped on stored entries
+
+    private static final double RESIZE_THRESHOLD = 0.75;
+
+    /*
+     * Layout of a packed entry:
+     *   bits  0-15  best move + 1 (0 if there is none)
+     *   bits 16-23  remaining depth
+     *   bits 24-25  bound type (never 0, so a stored entry is never MISS)
+     *   bits 26-31  generation of the search that stored the entry
+     *   bits 32-63  score
+     */
+    private static final int DEPTH_SHIFT = 16;
+    private static final int BOUND_SHIFT = 24;
+    private static final int GENERATION_SHIFT = 26;
+    private static final int GENERATION_MASK = 0x3F;
+    private static final int SCORE_SHIFT = 32;
+
+    private static final int MAX_DEPTH = 0xFF;
+
+    /**
+     * Constructs a new TranspositionTable able to hold the given number of entries
+     * before its first resize.
+     *
+     * @param initialCapacity the expected number of entries.
+     */
+    public TranspositionTable(int initialCapacity) {
+        int capacity = 2;
+        while (capacity < initialCapacity / RESIZE_THRESHOLD) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.entries = new long[capacity];
+        this.mask = capacity - 1;
+        this.recordCount = 0;
+        this.fixedSize = false;
+        this.replacementPolicy = ALWAYS_REPLACE;
+    }
+
+    /**
+     * Constructs a new fixed-size TranspositionTable that uses at most the given
+     * number of bytes for its slots and never resizes.
+     *
+     * @param byteBudget the maximum number of bytes to use for the slots.
+     * @param replacementPolicy ALWAYS_REPLACE, DEPTH_PREFERRED or TWO_TIER.
+     * @throws IllegalArgumentException if the budget cannot hold a single bucket
+     *         or the policy is unknown.
+     */
+    public TranspositionTable(long byteBudget, int replacementPolicy) {
+        if (replacementPolicy < ALWAYS_REPLACE || replacementPolicy > TWO_TIER) {
+            throw new IllegalArgumentException("Unknown replacement policy: " + replacementPolicy);
+        }
+        long buckets = byteBudget / (BYTES_PER_SLOT * BUCKET_SIZE);
+        if (buckets < 1) {
+            throw new IllegalArgumentException("Byte budget too small: " + byteBudget);
+        }
+        int bucketCount = Integer.highestOneBit((int) Math.min(buckets, 1 << 26));
+        int capacity = bucketCount * BUCKET_SIZE;
+        this.keys = new long[capacity];
+        this.entries = new long[capacity];
+        this.mask = capacity - 1;
+        this.recordCount = 0;
+        this.fixedSize = true;
+        this.replacementPolicy = replacementPolicy;
+        this.nextVictim = new int[bucketCount];
+    }
+
+    /**
+     * Looks up the entry stored for a configuration.
+     *
+     * @param key the hash key of the configuration.
+     * @return the packed entry, or MISS if the configuration is not in the table.
+     */
+    public long probe(long key) {
+        if (fixedSize) {
+            int first = bucketFor(key);
+            for (int index = first; index < first + BUCKET_SIZE; index++) {
+                long entry = entries[index];
+                if (entry != MISS && (keys[index] ^ entry) == key) {
+                    hits++;
+                    if (generationOf(entry) != generation) {
+                        // Still useful in this search, so it is no longer stale
+                        entry = withGeneration(entry, generation);
+                        writeSlot(index, key, entry);
+                    }
+                    return entry;
+                }
+            }
+            misses++;
+            return MISS;
+        }
+
+        int index = slotFor(key);
+        long entry;
+        while ((entry = entries[index]) != MISS) {
+            if ((keys[index] ^ entry) == key) {
+                hits++;
+                return entry;
+            }
+            index = (index + 1) & mask;
+        }
+        misses++;
+        return MISS;
+    }
+
+    /**
+     * Stores the result of searching a configuration, replacing any entry
+     * already stored for it. In a fixed-size table the entry may instead replace
+     * another configuration, or be dropped, as decided by the replacement policy.
+     *
+     * @param key the hash key of the configuration.
+     * @param score the score found by the search.
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND.
+     * @param depth the remaining depth the configuration was searched to.
+     * @param move the index of the best move found, or -1 if there is none.
+     */
+    public void store(long key, int score, int bound, int depth, int move) {
+        long entry = pack(score, bound, depth, move, generation);
+        if (fixedSize) {
+            storeInBucket(key, entry);
+            return;
+        }
+
+        int index = slotFor(key);
+        long current;
+        while ((current = entries[index]) != MISS) {
+            if ((keys[index] ^ current) == key) {
+                writeSlot(index, key, entry);
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+
+        if (recordCount + 1 > (mask + 1) * RESIZE_THRESHOLD) {
+            expandAndRehash();
+            index = slotFor(key);
+            while (entries[index] != MISS) {
+                index = (index + 1) & mask;
+            }
+        }
+        writeSlot(index, key, entry);
+        recordCount++;
+    }
+
+    /**
+     * Starts a new search generation. Entries stored by earlier searches stay
+     * usable but are replaced before entries of the current search. Generations
+     * are counted modulo 64, so an entry last stored or probed exactly 64
+     * searches ago is taken for an entry of the current search.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & GENERATION_MASK;
+    }
+
+    /**
+     * Removes every entry from the table. This is meant to be called only when
+     * a new game starts, since entries of earlier moves stay valid within a game.
+     */
+    public void clear() {
+        Arrays.fill(entries, MISS);
+        recordCount = 0;
+        generation = 0;
+    }
+
+    /**
+     * Returns the current number of entries in the table.
+     *
+     * @return the number of entries.
+     */
+    public int numRecords() {
+        return recordCount;
+    }
+
+    /**
+     * Checks if the table has a fixed size, and can therefore be shared by
+     * several search threads.
+     *
+     * @return true if the table was built with a byte budget.
+     */
+    public boolean isFixedSize() {
+        return fixedSize;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return the capacity of the table.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the fraction of slots in use.
+     *
+     * @return the number of entries divided by the capacity.
+     */
+    public double getFillRate() {
+        return (double) recordCount / (mask + 1);
+    }
+
+    /**
+     * Returns the number of probes that found their configuration. The counters
+     * are plain fields, so threads sharing the table may lose some updates.
+     *
+     * @return the number of hits, approximate if the table is shared.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of probes that did not find their configuration.
+     *
+     * @return the number of misses, approximate if the table is shared.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries that were replaced by the entry of a
+     * different configuration.
+     *
+     * @return the number of overwrites, approximate if the table is shared.
+     */
+    public long getOverwrites() {
+        return overwrites;
+    }
+
+    /**
+     * Resets the hit, miss and overwrite counters.
+     */
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        overwrites = 0;
+    }
+
+    /**
+     * Extracts the score of a packed entry.
+     *
+     * @param entry a packed entry returned by probe.
+     * @return the score of the entry.
+     */
+    public static int score(long entry) {
+        return (int) (entry >> SCORE_SHIFT);
+    }
+
+    /**
+     * Extracts the bound type of a packed entry.
+     *
+     * @param entry a packed entry returned by probe.
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND.
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * Extracts the remaining depth of a packed entry.
+     *
+     * @param entry a packed entry returned by probe.
+     * @return the depth the configuration was searched to.
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+    }
+
+    /**
+     * Extracts the best move of a packed entry.
+     *
+     * @param entry a packed entry returned by probe.
+     * @return the index of the best move, or -1 if there is none.
+     */
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF) - 1;
+    }
+
+    /**
+     * Replaces the best move of a packed entry.
+     *
+     * @param entry a packed entry returned by probe.
+     * @param move the index of the new best move, or -1.
+     * @return the entry with the new best move.
+     */
+    public static long withMove(long entry, int move) {
+        return (entry & ~0xFFFFL) | ((move + 1) & 0xFFFF);
+    }
+
+    /**
+     * Packs the fields of an entry into a long.
+     *
+     * @param score the score.
+     * @param bound the bound type.
+     * @param depth the remaining depth, capped at 255.
+     * @param move the index of the best move, or -1.
+     * @param generation the generation of the search storing the entry.
+     * @return the packed entry.
+     */
+    private static long pack(int score, int bound, int depth, int move, int generation) {
+        return ((long) score << SCORE_SHIFT)
+             | ((long) generation << GENERATION_SHIFT)
+             | ((long) bound << BOUND_SHIFT)
+             | ((long) Math.min(Math.max(depth, 0), MAX_DEPTH) << DEPTH_SHIFT)
+             | ((move + 1) & 0xFFFF);
+    }
+
+    /**
+     * Stores an entry in the bucket of its key in a fixed-size table.
+     *
+     * @param key the hash key of the configuration.
+     * @param entry the packed entry.
+     */
+    private void storeInBucket(long key, long entry) {
+        int first = bucketFor(key);
+        int free = -1;
+        for (int index = first; index < first + BUCKET_SIZE; index++) {
+            long current = entries[index];
+            if (current == MISS) {
+                if (free < 0) free = index;
+            } else if ((keys[index] ^ current) == key) {
+                writeSlot(index, key, entry);
+                return;
+            }
+        }
+        if (free >= 0) {
+            writeSlot(free, key, entry);
+            recordCount++;
+            return;
+        }
+
+        // Entries of earlier searches go first, whatever the policy
+        int victim = stalest(first);
+        if (victim < 0) {
+            victim = chooseVictim(first, entry);
+            if (victim < 0) return;
+        }
+        writeSlot(victim, key, entry);
+        overwrites++;
+    }
+
+    /**
+     * Writes a key and its entry to a slot. The entry is written first, so that
+     * a concurrent reader sees either a matching pair or a pair that fails the
+     * XOR check.
+     *
+     * @param index the index of the slot.
+     * @param key the hash key of the configuration.
+     * @param entry the packed entry.
+     */
+    private void writeSlot(int index, long key, long entry) {
+        entries[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    /**
+     * Picks the slot of a full bucket that a new entry replaces, following the
+     * replacement policy of the table.
+     *
+     * @param first the first slot of the bucket.
+     * @param entry the packed entry to be stored.
+     * @return the index of the slot to replace, or -1 if the entry should be dropped.
+     */
+    private int chooseVictim(int first, long entry) {
+        int victim;
+        if (replacementPolicy == ALWAYS_REPLACE) {
+            victim = roundRobin(first, 0, BUCKET_SIZE);
+        } else if (replacementPolicy == DEPTH_PREFERRED) {
+            victim = shallowest(first, 0, BUCKET_SIZE);
+            if (depth(entry) < depth(entries[victim])) {
+                return -1; // Every stored entry is deeper, keep them
+            }
+        } else {
+            // Deep entries go to the first half; what they push out, and every
+            // shallower entry, goes to the always-replace second half
+            int half = BUCKET_SIZE / 2;
+            victim = shallowest(first, 0, half);
+            if (depth(entry) >= depth(entries[victim])) {
+                int demoted = roundRobin(first, half, BUCKET_SIZE);
+                keys[demoted] = keys[victim];
+                entries[demoted] = entries[victim];
+            } else {
+                victim = roundRobin(first, half, BUCKET_SIZE);
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Returns the slot of a bucket whose entry was stored the most generations ago,
+     * preferring the shallowest one among equally old entries.
+     *
+     * @param first the first slot of the bucket.
+     * @return the index of the stalest slot, or -1 if every entry is from the current search.
+     */
+    private int stalest(int first) {
+        int victim = -1;
+        int victimAge = 0;
+        for (int index = first; index < first + BUCKET_SIZE; index++) {
+            int age = (generation - generationOf(entries[index])) & GENERATION_MASK;
+            if (age > victimAge || (age == victimAge && age > 0
+                    && depth(entries[index]) < depth(entries[victim]))) {
+                victim = index;
+                victimAge = age;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Extracts the generation of a packed entry.
+     *
+     * @param entry a packed entry.
+     * @return the generation of the search that stored the entry.
+     */
+    private static int generationOf(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+    }
+
+    /**
+     * Replaces the generation of a packed entry.
+     *
+     * @param entry a packed entry.
+     * @param generation the new generation.
+     * @return the entry stamped with the new generation.
+     */
+    private static long withGeneration(long entry, int generation) {
+        return (entry & ~((long) GENERATION_MASK << GENERATION_SHIFT))
+             | ((long) generation << GENERATION_SHIFT);
+    }
+
+    /**
+     * Returns the slot with the smallest depth among slots [from, to) of a bucket.
+     *
+     * @param first the first slot of the bucket.
+     * @param from the first slot offset to consider.
+     * @param to the slot offset after the last one to consider.
+     * @return the index of the shallowest slot.
+     */
+    private int shallowest(int first, int from, int to) {
+        int victim = first + from;
+        for (int index = victim + 1; index < first + to; index++) {
+            if (depth(entries[index]) < depth(entries[victim])) {
+                victim = index;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Returns the next slot among slots [from, to) of a bucket in round-robin order,
+     * so that the entry that has been there the longest is replaced first.
+     *
+     * @param first the first slot of the bucket.
+     * @param from the first slot offset to consider.
+     * @param to the slot offset after the last one to consider.
+     * @return the index of the slot to replace.
+     */
+    private int roundRobin(int first, int from, int to) {
+        int bucket = first / BUCKET_SIZE;
+        int offset = from + Math.floorMod(nextVictim[bucket] - from, to - from);
+        nextVictim[bucket] = offset + 1 < to ? offset + 1 : from;
+        return first + offset;
+    }
+
+    /**
+     * Doubles the capacity of the table and reinserts all existing entries.
+     */
+    private void expandAndRehash() {
+        long[] oldKeys = keys;
+        long[] oldEntries = entries;
+
+        int newCapacity = oldKeys.length * 2;
+        keys = new long[newCapacity];
+        entries = new long[newCapacity];
+        mask = newCapacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldEntries[i] != MISS) {
+                int index = slotFor(oldKeys[i] ^ oldEntries[i]);
+                while (entries[index] != MISS) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                entries[index] = oldEntries[i];
+            }
+        }
+    }
+
+    /**
+     * Computes the home slot of a key by mixing its bits and masking to the table size.
+     *
+     * @param key the hash key.
+     * @return the home slot of the key.
+     */
+    private int slotFor(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Computes the first slot of the bucket of a key in a fixed-size table.
+     *
+     * @param key the hash key.
+     * @return the index of the first slot of the bucket.
+     */
+    private int bucketFor(long key) {
+        return slotFor(key) & ~(BUCKET_SIZE - 1);
+    }
+}